@@ -0,0 +1,77 @@
+package com.payu.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.UUID;
+
+// Coste de (de)serialización de una llamada al banco y al antifraude por formato: la solicitud completa
+// en JSON (lo que se enviaba antes), el DTO reducido en JSON y el DTO reducido en CBOR. Los bytes en
+// el cable de cada variante se imprimen al preparar el estado; la CPU por llamada es la inversa del
+// throughput y gc.alloc.rate.norm da los bytes asignados
+@State(Scope.Benchmark)
+public class DownstreamCodecBenchmark {
+
+    public enum Format {
+        FULL_JSON, SLIM_JSON, SLIM_CBOR
+    }
+
+    @Param({"FULL_JSON", "SLIM_JSON", "SLIM_CBOR"})
+    private Format format;
+
+    private ObjectMapper objectMapper;
+
+    private Object bankRequest;
+    private byte[] bankResponse;
+
+    private Object fraudRequest;
+    private byte[] fraudResponse;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = format == Format.SLIM_CBOR
+                ? Jackson2ObjectMapperBuilder.cbor().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+
+        PaymentRequest paymentRequest = new PaymentRequest();
+        paymentRequest.setCardNumber("4111111111111111");
+        paymentRequest.setCardHolderName("Juan Pérez");
+        paymentRequest.setAmount(new BigDecimal("500.00"));
+        paymentRequest.setCurrency("USD");
+        paymentRequest.setExpirationDate(YearMonth.now().plusYears(2));
+        paymentRequest.setCvv("123");
+        bankRequest = format == Format.FULL_JSON ? paymentRequest : BankAuthorizationRequest.from(paymentRequest);
+        fraudRequest = format == Format.FULL_JSON ? paymentRequest : FraudCheckRequest.from(paymentRequest);
+
+        BankResponse approved = new BankResponse();
+        approved.setStatus("APPROVED");
+        approved.setTransactionId(UUID.randomUUID().toString());
+        approved.setMessage("Transacción aprobada.");
+        bankResponse = objectMapper.writeValueAsBytes(approved);
+        fraudResponse = objectMapper.writeValueAsBytes(new AntiFraudResponse());
+
+        System.out.printf("%n%s: banco %d + %d bytes, antifraude %d + %d bytes (solicitud + respuesta)%n", format,
+                objectMapper.writeValueAsBytes(bankRequest).length, bankResponse.length,
+                objectMapper.writeValueAsBytes(fraudRequest).length, fraudResponse.length);
+    }
+
+    @Benchmark
+    public BankResponse bankCall(Blackhole blackhole) throws Exception {
+        blackhole.consume(objectMapper.writeValueAsBytes(bankRequest));
+        return objectMapper.readValue(bankResponse, BankResponse.class);
+    }
+
+    @Benchmark
+    public AntiFraudResponse fraudCall(Blackhole blackhole) throws Exception {
+        blackhole.consume(objectMapper.writeValueAsBytes(fraudRequest));
+        return objectMapper.readValue(fraudResponse, AntiFraudResponse.class);
+    }
+}
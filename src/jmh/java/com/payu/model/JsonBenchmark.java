@@ -0,0 +1,69 @@
+package com.payu.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+// (De)serialización JSON de los modelos del camino crítico con la configuración de Jackson de Spring
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private PaymentRequest paymentRequest;
+    private byte[] paymentRequestJson;
+
+    private Transaction transaction;
+    private byte[] transactionJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        paymentRequest = new PaymentRequest();
+        paymentRequest.setCardNumber("4111111111111111");
+        paymentRequest.setCardHolderName("Juan Pérez");
+        paymentRequest.setAmount(new BigDecimal("500.00"));
+        paymentRequest.setCurrency("USD");
+        paymentRequest.setExpirationDate(YearMonth.now().plusYears(2));
+        paymentRequest.setCvv("123");
+        paymentRequestJson = objectMapper.writeValueAsBytes(paymentRequest);
+
+        transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setCardNumber("4111111111111111");
+        transaction.setAmountMinor(50000);
+        transaction.setCurrency("USD");
+        transaction.setType(TransactionType.PURCHASE);
+        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setBankTransactionId("c42639d9-b457-4e9c-a03f-71a925b4c344");
+        transactionJson = objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] serializePaymentRequest() throws Exception {
+        return objectMapper.writeValueAsBytes(paymentRequest);
+    }
+
+    @Benchmark
+    public PaymentRequest deserializePaymentRequest() throws Exception {
+        return objectMapper.readValue(paymentRequestJson, PaymentRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeTransaction() throws Exception {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public Transaction deserializeTransaction() throws Exception {
+        return objectMapper.readValue(transactionJson, Transaction.class);
+    }
+}
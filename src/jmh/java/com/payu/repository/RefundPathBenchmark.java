@@ -0,0 +1,114 @@
+package com.payu.repository;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Latencia de las consultas del reembolso sobre el esquema de db/migration con tablas de distinto
+// tamaño: con los índices debe mantenerse plana al crecer la tabla. Las mismas sentencias que genera
+// Hibernate para findById, reserveRefund y releaseRefund, y la lectura de los reembolsos de una compra.
+// Con indexed=false se elimina el índice de reembolsos para ver el recorrido completo de la tabla.
+// 10 millones de filas necesitan unos 4 GB de heap:
+//   java -Xmx6g -jar build/libs/payU-0.0.1-SNAPSHOT-jmh.jar RefundPathBenchmark -p rows=10000000
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RefundPathBenchmark {
+
+    // 1.00 USD en unidades menores
+    private static final long REFUND = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"true"})
+    public boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement findById;
+    private PreparedStatement reserveRefund;
+    private PreparedStatement releaseRefund;
+    private PreparedStatement refundsOfPurchase;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:refunds-" + rows + "-" + indexed + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+        connection = DriverManager.getConnection(url, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            // Compras con IDs 1..rows y un reembolso por cada diez compras
+            statement.execute("INSERT INTO transaction (id, card_number, amount_minor, currency, type, timestamp, refunded_amount_minor) "
+                    + "SELECT X, '4111111111111111', 10000, 'USD', 'PURCHASE', CURRENT_TIMESTAMP, 1000 "
+                    + "FROM SYSTEM_RANGE(1, " + rows + ")");
+            statement.execute("INSERT INTO transaction (id, card_number, amount_minor, currency, type, timestamp, "
+                    + "original_transaction_id, refunded_amount_minor) "
+                    + "SELECT " + rows + " + X, '4111111111111111', -1000, 'USD', 'REFUND', CURRENT_TIMESTAMP, X * 10, 0 "
+                    + "FROM SYSTEM_RANGE(1, " + rows / 10 + ")");
+            if (!indexed) {
+                statement.execute("DROP INDEX idx_transaction_original_type_id");
+            }
+            statement.execute("ANALYZE");
+        }
+        findById = connection.prepareStatement("SELECT id, card_number, amount_minor, currency, type, timestamp, "
+                + "original_transaction_id, bank_transaction_id, refunded_amount_minor FROM transaction WHERE id = ?");
+        reserveRefund = connection.prepareStatement("UPDATE transaction SET refunded_amount_minor = refunded_amount_minor + ? "
+                + "WHERE id = ? AND type = 'PURCHASE' AND amount_minor - refunded_amount_minor >= ?");
+        releaseRefund = connection.prepareStatement("UPDATE transaction SET refunded_amount_minor = refunded_amount_minor - ? WHERE id = ?");
+        refundsOfPurchase = connection.prepareStatement("SELECT id, amount_minor FROM transaction "
+                + "WHERE original_transaction_id = ? AND type = 'REFUND'");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    // Reserva y libera el mismo monto para que el saldo de las compras no se agote
+    @Benchmark
+    public int reserveAndReleaseRefund() throws SQLException {
+        long id = ThreadLocalRandom.current().nextLong(1, rows + 1);
+        findById.setLong(1, id);
+        try (ResultSet purchase = findById.executeQuery()) {
+            purchase.next();
+        }
+        reserveRefund.setLong(1, REFUND);
+        reserveRefund.setLong(2, id);
+        reserveRefund.setLong(3, REFUND);
+        int reserved = reserveRefund.executeUpdate();
+        releaseRefund.setLong(1, REFUND);
+        releaseRefund.setLong(2, id);
+        return reserved + releaseRefund.executeUpdate();
+    }
+
+    @Benchmark
+    public long refundsOfPurchase() throws SQLException {
+        refundsOfPurchase.setLong(1, ThreadLocalRandom.current().nextLong(1, rows / 10 + 1) * 10);
+        long total = 0;
+        try (ResultSet refunds = refundsOfPurchase.executeQuery()) {
+            while (refunds.next()) {
+                total += refunds.getLong(2);
+            }
+        }
+        return total;
+    }
+}
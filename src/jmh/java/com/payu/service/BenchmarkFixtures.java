@@ -0,0 +1,136 @@
+package com.payu.service;
+
+import com.payu.config.AntiFraudBatchingProperties;
+import com.payu.config.CardLedgerProperties;
+import com.payu.config.PaymentMetrics;
+import com.payu.config.PaymentProperties;
+import com.payu.config.PersistenceProperties;
+import com.payu.config.PreScreeningProperties;
+import com.payu.model.BankResponse;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import com.payu.repository.TransactionRepository;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicLong;
+
+// PaymentService con servicios externos y repositorio en memoria, sin HTTP ni base de datos
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static PaymentRequest paymentRequest() {
+        PaymentRequest request = new PaymentRequest();
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("Juan Pérez");
+        request.setAmount(new BigDecimal("500.00"));
+        request.setCurrency("USD");
+        request.setExpirationDate(YearMonth.now().plusYears(2));
+        request.setCvv("123");
+        return request;
+    }
+
+    static PaymentService stubbedPaymentService(PaymentProperties paymentProperties) {
+        BankResponse approved = new BankResponse();
+        approved.setStatus("APPROVED");
+        approved.setTransactionId("bank-tx-benchmark");
+        approved.setMessage("Transacción aprobada.");
+
+        PaymentService paymentService = new PaymentService();
+        ReflectionTestUtils.setField(paymentService, "transactionRepository", inMemoryRepository());
+        ReflectionTestUtils.setField(paymentService, "antiFraudService", new StubAntiFraudService());
+        ReflectionTestUtils.setField(paymentService, "bankService", new StubBankService(approved));
+        ReflectionTestUtils.setField(paymentService, "persistenceScheduler", Schedulers.immediate());
+        ReflectionTestUtils.setField(paymentService, "paymentProperties", paymentProperties);
+        ReflectionTestUtils.setField(paymentService, "cardValidator", new CardValidator());
+        ReflectionTestUtils.setField(paymentService, "persistenceProperties", new PersistenceProperties());
+        ReflectionTestUtils.setField(paymentService, "paymentMetrics", paymentMetrics());
+        // Sin límites configurados: el libro cuenta los pagos de la tarjeta fija sin rechazarlos
+        ReflectionTestUtils.setField(paymentService, "cardLedger", new CardLedger(new CardLedgerProperties(), null,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class)));
+        return paymentService;
+    }
+
+    // Solo implementa save: asigna un ID como lo haría la base de datos
+    private static TransactionRepository inMemoryRepository() {
+        AtomicLong ids = new AtomicLong();
+        return (TransactionRepository) Proxy.newProxyInstance(TransactionRepository.class.getClassLoader(),
+                new Class<?>[]{TransactionRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("save")) {
+                        Transaction transaction = (Transaction) args[0];
+                        transaction.setId(ids.incrementAndGet());
+                        return transaction;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static PreScreeningService disabledPreScreening() {
+        PreScreeningProperties properties = new PreScreeningProperties();
+        properties.setEnabled(false);
+        return new PreScreeningService(properties, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    // Timers por etapa como en la aplicación, sin trazado
+    private static PaymentMetrics paymentMetrics() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        return new PaymentMetrics(meterRegistry, observationRegistry);
+    }
+
+    private static class StubAntiFraudService extends AntiFraudService {
+
+        StubAntiFraudService() {
+            super(WebClient.create(), CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), RetryRegistry.ofDefaults(),
+                    new NoOpFraudVerdictCache(), disabledPreScreening(), new AntiFraudBatchingProperties(),
+                    new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        }
+
+        @Override
+        public boolean isFraudulent(PaymentRequest request) {
+            return false;
+        }
+
+        @Override
+        public Mono<Boolean> isFraudulentReactive(PaymentRequest request) {
+            return Mono.just(false);
+        }
+    }
+
+    private static class StubBankService extends BankService {
+
+        private final BankResponse response;
+
+        StubBankService(BankResponse response) {
+            super(WebClient.create(), CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), RetryRegistry.ofDefaults());
+            this.response = response;
+        }
+
+        @Override
+        public BankResponse processPayment(PaymentRequest request) {
+            return response;
+        }
+
+        @Override
+        public Mono<BankResponse> processPaymentReactive(PaymentRequest request) {
+            return Mono.just(response);
+        }
+    }
+}
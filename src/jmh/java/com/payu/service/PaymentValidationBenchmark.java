@@ -0,0 +1,48 @@
+package com.payu.service;
+
+import com.payu.config.PaymentProperties;
+import com.payu.model.CardBrand;
+import com.payu.model.PaymentRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Con el perfilador gc, gc.alloc.rate.norm debe quedar en 0 B/op en todos los casos
+@State(Scope.Benchmark)
+public class PaymentValidationBenchmark {
+
+    private PaymentService paymentService;
+
+    private CardValidator cardValidator;
+
+    private PaymentRequest request;
+
+    @Setup
+    public void setUp() {
+        paymentService = BenchmarkFixtures.stubbedPaymentService(new PaymentProperties());
+        cardValidator = new CardValidator();
+        request = BenchmarkFixtures.paymentRequest();
+    }
+
+    @Benchmark
+    public boolean isValidCardNumber() {
+        return cardValidator.isValidCardNumber(request.getCardNumber());
+    }
+
+    @Benchmark
+    public CardBrand brandOf() {
+        return cardValidator.brandOf(request.getCardNumber());
+    }
+
+    @Benchmark
+    public boolean isValidCvv() {
+        return cardValidator.isValidCvv(request.getCvv());
+    }
+
+    @Benchmark
+    public PaymentRequest validatePayerInfo() {
+        paymentService.validatePayerInfo(request);
+        return request;
+    }
+}
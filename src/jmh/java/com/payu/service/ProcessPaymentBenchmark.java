@@ -0,0 +1,41 @@
+package com.payu.service;
+
+import com.payu.config.PaymentProperties;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Flujo completo de processPayment con servicios externos simulados en proceso: mide el coste
+// propio de la aplicación (validación, composición del flujo y construcción de la transacción)
+@State(Scope.Benchmark)
+public class ProcessPaymentBenchmark {
+
+    @Param({"SEQUENTIAL", "SPECULATIVE"})
+    public PaymentProperties.Pipeline pipeline;
+
+    private PaymentService paymentService;
+
+    private PaymentRequest request;
+
+    @Setup
+    public void setUp() {
+        PaymentProperties paymentProperties = new PaymentProperties();
+        paymentProperties.setPipeline(pipeline);
+        paymentService = BenchmarkFixtures.stubbedPaymentService(paymentProperties);
+        request = BenchmarkFixtures.paymentRequest();
+    }
+
+    @Benchmark
+    public Transaction processPayment() {
+        return paymentService.processPayment(request);
+    }
+
+    @Benchmark
+    public Transaction processPaymentReactive() {
+        return paymentService.processPaymentReactive(request).block();
+    }
+}
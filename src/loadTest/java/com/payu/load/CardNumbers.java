@@ -0,0 +1,47 @@
+package com.payu.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Tarjetas Visa de 16 dígitos válidas por Luhn y repartidas en un conjunto fijo, para que las
+// reglas de velocidad por tarjeta vean un tráfico realista y no miles de intentos de una sola tarjeta
+final class CardNumbers {
+
+    private static final int POOL_SIZE = 10_000;
+
+    private CardNumbers() {
+    }
+
+    // Tarjeta aleatoria del conjunto; 'suffix' fija los últimos dígitos (p. ej. 0000 para rechazos)
+    static String random(String suffix) {
+        int index = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        String body = "4" + String.format("%0" + (14 - suffix.length()) + "d", index) + suffix;
+        return withCheckDigitBefore(body, suffix.length());
+    }
+
+    // Inserta el dígito que hace válido el número completo en la posición anterior al sufijo
+    private static String withCheckDigitBefore(String body, int suffixLength) {
+        int position = body.length() - suffixLength;
+        for (int digit = 0; digit <= 9; digit++) {
+            String candidate = body.substring(0, position) + digit + body.substring(position);
+            if (luhn(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Sin dígito de control para " + body);
+    }
+
+    private static boolean luhn(String number) {
+        int sum = 0;
+        for (int i = 0; i < number.length(); i++) {
+            int digit = number.charAt(number.length() - 1 - i) - '0';
+            if (i % 2 == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+}
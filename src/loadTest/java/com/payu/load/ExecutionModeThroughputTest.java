@@ -0,0 +1,51 @@
+package com.payu.load;
+
+import com.payu.PayUApplication;
+import com.payu.config.PaymentProperties.ExecutionMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compara el throughput de los modos BLOCKING y REACTIVE con el mismo número fijo de hilos de Tomcat.
+// En modo BLOCKING cada pago ocupa un hilo durante las dos llamadas a los mocks, que a su vez
+// necesitan hilos del mismo pool: con concurrency >= threads / 2 el modo bloqueante se satura.
+class ExecutionModeThroughputTest {
+
+    private static final int THREADS = Integer.getInteger("payu.load.threads", 32);
+    private static final int CONCURRENCY = Integer.getInteger("payu.load.concurrency", 16);
+    private static final int REQUESTS = Integer.getInteger("payu.load.requests", 5_000);
+
+    @Test
+    void compareExecutionModes() throws InterruptedException {
+        System.out.printf("%nThroughput con %d hilos de Tomcat, %d clientes concurrentes, %d pagos%n",
+                THREADS, CONCURRENCY, REQUESTS);
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            LoadClient.Result result = run(mode);
+            System.out.printf("  %-9s %10.1f pagos/s  (ok=%d, errores=%d, %d ms)%n",
+                    mode, result.throughput(), result.succeeded(), result.failed(), result.elapsedNanos() / 1_000_000);
+            assertTrue(result.succeeded() > 0, "Ningún pago completado en modo " + mode);
+        }
+    }
+
+    private LoadClient.Result run(ExecutionMode mode) throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PayUApplication.class)
+                .properties(
+                        "server.port=8080",
+                        "server.tomcat.threads.max=" + THREADS,
+                        "server.tomcat.threads.min-spare=" + THREADS,
+                        "payu.payment.execution-mode=" + mode,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadClient client = new LoadClient(port, Duration.ofSeconds(10));
+            client.run(CONCURRENCY, Math.max(REQUESTS / 5, 1)); // calentamiento
+            return client.run(CONCURRENCY, REQUESTS);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.payu.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Generador de carga de modelo cerrado: 'concurrency' clientes envían pagos sin pausa
+// hasta completar 'requests' solicitudes
+class LoadClient {
+
+    private final HttpClient httpClient;
+    private final URI paymentsUri;
+    private final Duration requestTimeout;
+
+    LoadClient(int port, Duration requestTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.paymentsUri = URI.create("http://localhost:" + port + "/api/payments");
+        this.requestTimeout = requestTimeout;
+    }
+
+    Result run(int concurrency, int requests) throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(requests);
+        LongAdder succeeded = new LongAdder();
+        LongAdder failed = new LongAdder();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    if (sendPayment()) {
+                        succeeded.increment();
+                    } else {
+                        failed.increment();
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - start;
+        return new Result(succeeded.sum(), failed.sum(), elapsed);
+    }
+
+    // Envía 'payments' pagos a la vez y mide la latencia individual de cada uno
+    Latencies burst(int payments) {
+        long[] latencies = new long[payments];
+        LongAdder failed = new LongAdder();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[payments];
+        for (int i = 0; i < payments; i++) {
+            int index = i;
+            long start = System.nanoTime();
+            futures[i] = httpClient.sendAsync(paymentRequest(), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        latencies[index] = System.nanoTime() - start;
+                        if (error != null || response.statusCode() != 201) {
+                            failed.increment();
+                        }
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(futures).join();
+        Arrays.sort(latencies);
+        return new Latencies(latencies, failed.sum());
+    }
+
+    private HttpRequest paymentRequest() {
+        return HttpRequest.newBuilder(paymentsUri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(paymentJson()))
+                .build();
+    }
+
+    private boolean sendPayment() {
+        try {
+            HttpResponse<Void> response = httpClient.send(paymentRequest(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 201;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static String paymentJson() {
+        return """
+                {"cardNumber":"%s","cardHolderName":"Carga","amount":100.00,"currency":"USD",\
+                "expirationDate":"%s","cvv":"123"}""".formatted(CardNumbers.random(""), YearMonth.now().plusYears(2));
+    }
+
+    record Result(long succeeded, long failed, long elapsedNanos) {
+
+        double throughput() {
+            return succeeded * 1_000_000_000d / elapsedNanos;
+        }
+    }
+
+    record Latencies(long[] sortedNanos, long failed) {
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(index, 0)] / 1_000_000d;
+        }
+
+        double maxMillis() {
+            return sortedNanos[sortedNanos.length - 1] / 1_000_000d;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.payu.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Generador de carga de modelo abierto: las solicitudes llegan a una tasa fija con independencia
+// de lo que tarde el servidor en responder. La latencia corregida se mide desde el instante en
+// que la solicitud debía salir (corrección de coordinated omission); la no corregida, desde que
+// realmente salió
+class OpenModelLoadGenerator {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final String REFUND_AMOUNT = "1.00";
+
+    enum Operation {
+        APPROVED(201), DECLINED(402), FRAUD(400), REFUND(201);
+
+        private final int expectedStatus;
+
+        Operation(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    private final HttpClient httpClient;
+    private final URI paymentsUri;
+    private final URI refundsUri;
+    private final Duration requestTimeout;
+    private final List<Long> refundableIds = new ArrayList<>();
+    private final AtomicInteger nextRefund = new AtomicInteger();
+
+    OpenModelLoadGenerator(int port, Duration requestTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.paymentsUri = URI.create("http://localhost:" + port + "/api/payments");
+        this.refundsUri = URI.create("http://localhost:" + port + "/api/payments/refunds");
+        this.requestTimeout = requestTimeout;
+    }
+
+    // Crea compras aprobadas de 100.00 sobre las que se emiten reembolsos parciales de 1.00
+    void seedRefundableTransactions(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            HttpResponse<String> response = httpClient.send(request(Operation.APPROVED), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = ID.matcher(response.body());
+            if (response.statusCode() != 201 || !matcher.find()) {
+                throw new IllegalStateException("No se pudo crear la transacción semilla: " + response.statusCode());
+            }
+            refundableIds.add(Long.parseLong(matcher.group(1)));
+        }
+    }
+
+    Report run(Map<Operation, Integer> mix, int ratePerSecond, Duration duration) {
+        Operation[] wheel = wheel(mix);
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : mix.keySet()) {
+            stats.put(operation, new Stats());
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long total = duration.toNanos() / interval;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>((int) total);
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * interval;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+            Stats operationStats = stats.get(operation);
+            long actualStart = System.nanoTime();
+            inFlight.add(httpClient.sendAsync(request(operation), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        long end = System.nanoTime();
+                        operationStats.corrected.recordValue(Math.min(end - intendedStart, HIGHEST_TRACKABLE_NANOS));
+                        operationStats.uncorrected.recordValue(Math.min(end - actualStart, HIGHEST_TRACKABLE_NANOS));
+                        if (error != null || response.statusCode() != operation.expectedStatus) {
+                            operationStats.errors.increment();
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture<?>[]::new)).join();
+        long elapsed = System.nanoTime() - start;
+
+        Map<Operation, Report.OperationReport> operations = new EnumMap<>(Operation.class);
+        stats.forEach((operation, operationStats) -> operations.put(operation, new Report.OperationReport(
+                operationStats.corrected.getIntervalHistogram(),
+                operationStats.uncorrected.getIntervalHistogram(),
+                operationStats.errors.sum())));
+        return new Report(ratePerSecond, total, elapsed, operations);
+    }
+
+    private HttpRequest request(Operation operation) {
+        URI uri = operation == Operation.REFUND ? refundsUri : paymentsUri;
+        return HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body(operation)))
+                .build();
+    }
+
+    private String body(Operation operation) {
+        return switch (operation) {
+            case APPROVED -> paymentJson(CardNumbers.random(""), "100.00");
+            // Termina en 0000: el mock del banco la rechaza
+            case DECLINED -> paymentJson(CardNumbers.random("0000"), "100.00");
+            // Supera el umbral de 1000 del mock antifraude
+            case FRAUD -> paymentJson(CardNumbers.random(""), "1500.00");
+            case REFUND -> """
+                    {"originalTransactionId":%d,"amount":%s}""".formatted(nextRefundableId(), REFUND_AMOUNT);
+        };
+    }
+
+    private long nextRefundableId() {
+        if (refundableIds.isEmpty()) {
+            throw new IllegalStateException("La mezcla incluye reembolsos pero no hay transacciones semilla");
+        }
+        return refundableIds.get(Math.floorMod(nextRefund.getAndIncrement(), refundableIds.size()));
+    }
+
+    private static String paymentJson(String cardNumber, String amount) {
+        return """
+                {"cardNumber":"%s","cardHolderName":"Carga","amount":%s,"currency":"USD",\
+                "expirationDate":"%s","cvv":"123"}""".formatted(cardNumber, amount, YearMonth.now().plusYears(2));
+    }
+
+    // Rueda de pesos: cada operación aparece tantas veces como su peso en la mezcla
+    private static Operation[] wheel(Map<Operation, Integer> mix) {
+        List<Operation> wheel = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(operation);
+            }
+        });
+        if (wheel.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de operaciones está vacía");
+        }
+        return wheel.toArray(Operation[]::new);
+    }
+
+    private static class Stats {
+        private final Recorder corrected = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        private final Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        private final LongAdder errors = new LongAdder();
+    }
+
+    record Report(int ratePerSecond, long requests, long elapsedNanos, Map<Operation, Report.OperationReport> operations) {
+
+        record OperationReport(Histogram corrected, Histogram uncorrected, long errors) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.payu.load;
+
+import com.payu.PayUApplication;
+import com.payu.load.OpenModelLoadGenerator.Operation;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mezcla de pagos aprobados, rechazados por el banco, fraudulentos y reembolsos parciales a tasa
+// de llegada fija. Los resultados quedan en build/reports/load/<label>: un resumen CSV y la
+// distribución de percentiles de cada operación (.hgrm) para comparar ejecuciones entre sí:
+// gradle loadTest --tests '*PaymentMixLoadTest' -Dpayu.load.rate=100 -Dpayu.load.duration=60 -Dpayu.load.label=antes
+class PaymentMixLoadTest {
+
+    private static final int RATE = Integer.getInteger("payu.load.rate", 50);
+    private static final int DURATION_SECONDS = Integer.getInteger("payu.load.duration", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("payu.load.warmup", 10);
+    private static final String MIX = System.getProperty("payu.load.mix", "approved:70,declined:10,fraud:10,refund:10");
+    private static final String LABEL = System.getProperty("payu.load.label", "payment-mix");
+    private static final String PERSISTENCE_MODE = System.getProperty("payu.load.persistence-mode", "DIRECT");
+    private static final Path REPORT_DIR = Path.of(System.getProperty("payu.load.reportDir", "build/reports/load"));
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    @Test
+    void runPaymentMix() throws Exception {
+        Map<Operation, Integer> mix = parseMix(MIX);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PayUApplication.class)
+                .properties(
+                        "server.port=8080",
+                        "payu.persistence.mode=" + PERSISTENCE_MODE,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(port, Duration.ofSeconds(30));
+            if (mix.containsKey(Operation.REFUND)) {
+                // Cada compra semilla admite 100 reembolsos de 1.00
+                long refunds = (long) RATE * (WARMUP_SECONDS + DURATION_SECONDS) * mix.get(Operation.REFUND)
+                        / mix.values().stream().mapToInt(Integer::intValue).sum();
+                generator.seedRefundableTransactions((int) Math.max(10, refunds / 50));
+            }
+            generator.run(mix, RATE, Duration.ofSeconds(WARMUP_SECONDS));
+            OpenModelLoadGenerator.Report report = generator.run(mix, RATE, Duration.ofSeconds(DURATION_SECONDS));
+
+            print(report, System.out);
+            Path written = write(report);
+            System.out.println("Reporte: " + written.toAbsolutePath());
+
+            report.operations().forEach((operation, result) ->
+                    assertTrue(result.errors() < result.corrected().getTotalCount(),
+                            "Ninguna operación " + operation + " respondió como se esperaba"));
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+            }
+        }
+        return weights;
+    }
+
+    private static void print(OpenModelLoadGenerator.Report report, PrintStream out) {
+        out.printf("%n%d solicitudes a %d/s en %.1f s (latencia corregida/sin corregir)%n",
+                report.requests(), report.ratePerSecond(), report.elapsedNanos() / 1e9);
+        out.printf("%-9s %7s %7s %17s %17s %17s %17s %17s%n",
+                "tipo", "total", "errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        report.operations().forEach((operation, result) -> {
+            out.printf("%-9s %7d %7d", operation, result.corrected().getTotalCount(), result.errors());
+            for (double percentile : PERCENTILES) {
+                out.printf(" %17s", pair(millis(result.corrected(), percentile), millis(result.uncorrected(), percentile)));
+            }
+            out.printf(" %17s%n", pair(result.corrected().getMaxValue() / 1e6, result.uncorrected().getMaxValue() / 1e6));
+        });
+    }
+
+    private static Path write(OpenModelLoadGenerator.Report report) throws IOException {
+        Path dir = Files.createDirectories(REPORT_DIR.resolve(LABEL));
+        Path summary = dir.resolve("summary.csv");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(summary))) {
+            out.println("operation,rate,count,errors,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,uncorrected_p99_ms");
+            report.operations().forEach((operation, result) -> {
+                Histogram corrected = result.corrected();
+                out.printf("%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n", operation, report.ratePerSecond(),
+                        corrected.getTotalCount(), result.errors(),
+                        millis(corrected, 50), millis(corrected, 90), millis(corrected, 99), millis(corrected, 99.9),
+                        corrected.getMaxValue() / 1e6, millis(result.uncorrected(), 99));
+            });
+        }
+        for (Map.Entry<Operation, OpenModelLoadGenerator.Report.OperationReport> entry : report.operations().entrySet()) {
+            String name = entry.getKey().name().toLowerCase();
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(name + ".hgrm")))) {
+                entry.getValue().corrected().outputPercentileDistribution(out, 1e6);
+            }
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(name + "-uncorrected.hgrm")))) {
+                entry.getValue().uncorrected().outputPercentileDistribution(out, 1e6);
+            }
+        }
+        return dir;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static String pair(double corrected, double uncorrected) {
+        return "%.1f/%.1f".formatted(corrected, uncorrected);
+    }
+}
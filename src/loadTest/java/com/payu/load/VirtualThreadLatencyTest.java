@@ -0,0 +1,64 @@
+package com.payu.load;
+
+import com.payu.PayUApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compara hilos de plataforma (pool de Tomcat por defecto, 200 hilos) con el perfil
+// 'virtual-threads' lanzando ráfagas de pagos simultáneos. Con hilos de plataforma y más de 200
+// pagos en vuelo, las llamadas a los mocks quedan en cola detrás de los propios pagos y solo
+// terminan por timeout; ese resultado se reporta tal cual. Cada nivel necesita dos sockets por
+// pago más las llamadas a los mocks, así que 10k exige un límite de descriptores holgado:
+// gradle loadTest --tests '*VirtualThreadLatencyTest' -Dpayu.load.levels=1000,10000 -Dpayu.load.threading=platform,virtual
+class VirtualThreadLatencyTest {
+
+    private static final int[] LEVELS = Arrays.stream(System.getProperty("payu.load.levels", "1000,10000").split(","))
+            .map(String::trim)
+            .mapToInt(Integer::parseInt)
+            .toArray();
+
+    private static final List<String> MODELS = List.of(System.getProperty("payu.load.threading", "platform,virtual").split(","));
+
+    @Test
+    void comparePlatformAndVirtualThreads() {
+        System.out.printf("%n%-9s %8s %10s %10s %10s %8s%n", "hilos", "pagos", "p50 ms", "p99 ms", "max ms", "errores");
+        for (String model : MODELS) {
+            boolean virtual = "virtual".equals(model.trim());
+            try (ConfigurableApplicationContext context = start(virtual)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadClient client = new LoadClient(port, Duration.ofSeconds(30));
+                client.burst(200); // calentamiento
+                for (int level : LEVELS) {
+                    LoadClient.Latencies latencies = client.burst(level);
+                    System.out.printf("%-9s %8d %10.1f %10.1f %10.1f %8d%n", virtual ? "virtual" : "platform", level,
+                            latencies.percentileMillis(50), latencies.percentileMillis(99),
+                            latencies.maxMillis(), latencies.failed());
+                    if (virtual) {
+                        assertTrue(latencies.failed() < level, "Ningún pago completado con " + level + " pagos simultáneos");
+                    }
+                }
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(boolean virtual) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(PayUApplication.class)
+                .properties(
+                        "server.port=8080",
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=10000",
+                        "logging.level.root=WARN");
+        if (virtual) {
+            builder.profiles("virtual-threads");
+        }
+        return builder.run();
+    }
+}
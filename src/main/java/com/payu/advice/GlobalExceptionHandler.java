@@ -1,13 +1,22 @@
 package com.payu.advice;
 
+import com.payu.config.PaymentMetrics;
 import com.payu.exception.BankDeclinedException;
+import com.payu.exception.BulkCapacityExceededException;
+import com.payu.exception.CardLimitExceededException;
+import com.payu.exception.DownstreamUnavailableException;
 import com.payu.exception.FraudException;
+import com.payu.exception.IdempotencyKeyConflictException;
+import com.payu.exception.PaymentQueueFullException;
+import com.payu.exception.PersistenceOverloadedException;
 import com.payu.exception.TransactionNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -15,28 +24,80 @@ import java.util.Map;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    @Autowired
+    private PaymentMetrics paymentMetrics;
+
     @ExceptionHandler(FraudException.class)
     public ResponseEntity<String> handleFraudException(FraudException ex) {
+        paymentMetrics.outcome("fraud");
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(TransactionNotFoundException.class)
     public ResponseEntity<String> handleTransactionNotFoundException(TransactionNotFoundException ex) {
+        paymentMetrics.outcome("not_found");
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
+        paymentMetrics.outcome("invalid");
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(BankDeclinedException.class)
     public ResponseEntity<String> handleBankDeclinedException(BankDeclinedException ex) {
+        paymentMetrics.outcome("declined");
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.PAYMENT_REQUIRED);
+    }
+
+    @ExceptionHandler(CardLimitExceededException.class)
+    public ResponseEntity<String> handleCardLimitExceededException(CardLimitExceededException ex) {
+        paymentMetrics.outcome("limit_exceeded");
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.PAYMENT_REQUIRED);
     }
 
+    @ExceptionHandler(DownstreamUnavailableException.class)
+    public ResponseEntity<String> handleDownstreamUnavailableException(DownstreamUnavailableException ex) {
+        paymentMetrics.outcome("downstream_unavailable");
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Solo llegan aquí las 4xx de un servicio externo (DownstreamGuard): el servicio responde pero
+    // rechaza nuestra solicitud
+    @ExceptionHandler(WebClientResponseException.class)
+    public ResponseEntity<String> handleDownstreamRejection(WebClientResponseException ex) {
+        paymentMetrics.outcome("downstream_rejected");
+        return new ResponseEntity<>("Un servicio externo rechazó la solicitud.", HttpStatus.BAD_GATEWAY);
+    }
+
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<String> handleIdempotencyKeyConflictException(IdempotencyKeyConflictException ex) {
+        paymentMetrics.outcome("idempotency_conflict");
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(PersistenceOverloadedException.class)
+    public ResponseEntity<String> handlePersistenceOverloadedException(PersistenceOverloadedException ex) {
+        paymentMetrics.outcome("persistence_overloaded");
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(BulkCapacityExceededException.class)
+    public ResponseEntity<String> handleBulkCapacityExceededException(BulkCapacityExceededException ex) {
+        paymentMetrics.outcome("bulk_rejected");
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @ExceptionHandler(PaymentQueueFullException.class)
+    public ResponseEntity<String> handlePaymentQueueFullException(PaymentQueueFullException ex) {
+        paymentMetrics.outcome("queue_full");
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        paymentMetrics.outcome("validation_error");
         Map<String, String> errors = new HashMap<>();
 
         ex.getBindingResult().getAllErrors().forEach((error) -> {
@@ -0,0 +1,19 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "payu.antifraud.batching")
+public class AntiFraudBatchingProperties {
+
+    // Agrupa las consultas antifraude concurrentes en una sola llamada a /check/batch. Añade hasta
+    // maxWait de latencia a cada consulta: solo compensa con mucha concurrencia
+    private boolean enabled = false;
+    // Se envía el lote al reunir maxBatchSize consultas o al cumplirse maxWait desde la primera
+    private int maxBatchSize = 64;
+    private Duration maxWait = Duration.ofMillis(2);
+    private int queueCapacity = 10_000;
+}
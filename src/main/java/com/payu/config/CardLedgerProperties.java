@@ -0,0 +1,32 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Saldo gastado y número de pagos por tarjeta y moneda en la última hora y el último día,
+// en memoria. Una moneda sin límites se contabiliza pero no se limita
+@Data
+@ConfigurationProperties(prefix = "payu.ledger")
+public class CardLedgerProperties {
+
+    private boolean enabled = true;
+    // Número de particiones con su propio bloqueo (potencia de dos)
+    private int shards = 64;
+    // Tarjetas retenidas en total; al llenarse una partición se descarta la tarjeta más inactiva
+    // de una muestra. Cada tarjeta ocupa unos 400 bytes
+    private int maxCards = 100_000;
+    private Map<String, Limit> limits = new LinkedHashMap<>();
+
+    @Data
+    public static class Limit {
+        // Valores nulos no limitan
+        private Integer hourlyCount;
+        private Integer dailyCount;
+        private BigDecimal hourlyAmount;
+        private BigDecimal dailyAmount;
+    }
+}
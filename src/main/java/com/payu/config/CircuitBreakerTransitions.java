@@ -0,0 +1,40 @@
+package com.payu.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cuenta y registra en el log cada cambio de estado de los circuit breakers
+@Slf4j
+@Component
+public class CircuitBreakerTransitions {
+
+    private final Map<String, Map<String, LongAdder>> transitions = new ConcurrentHashMap<>();
+
+    public CircuitBreakerTransitions(CircuitBreakerRegistry registry) {
+        registry.getAllCircuitBreakers().forEach(this::track);
+        registry.getEventPublisher().onEntryAdded(event -> track(event.getAddedEntry()));
+    }
+
+    public Map<String, Long> counts(String circuitBreakerName) {
+        Map<String, Long> counts = new TreeMap<>();
+        transitions.getOrDefault(circuitBreakerName, Map.of()).forEach((transition, count) -> counts.put(transition, count.sum()));
+        return counts;
+    }
+
+    private void track(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.StateTransition transition = event.getStateTransition();
+            log.warn("Circuit breaker '{}': {} -> {}", circuitBreaker.getName(), transition.getFromState(), transition.getToState());
+            transitions.computeIfAbsent(circuitBreaker.getName(), name -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(transition.name(), name -> new LongAdder())
+                    .increment();
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.payu.config;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+// Respuesta 4xx de un servicio externo: la solicitud o el contrato están mal, el servicio sí responde.
+// El circuit breaker la ignora (resilience4j.circuitbreaker.configs.default.ignore-exception-predicate)
+// para que una forma de solicitud incorrecta no lo abra. 408 y 429 sí son falta de capacidad
+public class DownstreamClientError implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable error) {
+        return error instanceof WebClientResponseException response
+                && response.getStatusCode().is4xxClientError()
+                && response.getStatusCode().value() != 408
+                && response.getStatusCode().value() != 429;
+    }
+}
@@ -0,0 +1,32 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "payu.antifraud.cache")
+public class FraudVerdictCacheProperties {
+
+    private boolean enabled = true;
+    private long maxSize = 100_000;
+    // Un veredicto limpio caduca pronto; uno fraudulento puede reutilizarse más tiempo
+    private Duration cleanTtl = Duration.ofSeconds(30);
+    private Duration fraudTtl = Duration.ofMinutes(10);
+    // Campos de PaymentRequest que forman la huella de la caché
+    private Set<KeyField> keyFields = EnumSet.of(KeyField.CARD, KeyField.AMOUNT_BUCKET, KeyField.CURRENCY);
+    // Montos del mismo tramo comparten veredicto: un tramo que cruce un umbral del servicio
+    // antifraude puede devolver el veredicto del monto vecino
+    private BigDecimal amountBucket = BigDecimal.TEN;
+
+    public enum KeyField {
+        CARD,
+        CARD_HOLDER,
+        AMOUNT_BUCKET,
+        CURRENCY
+    }
+}
@@ -0,0 +1,149 @@
+package com.payu.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Configuration
+public class HttpClientConfig {
+
+    public static final String BANK = "bank";
+    public static final String ANTIFRAUD = "antifraud";
+
+    @Bean
+    public HttpClientPoolMetrics httpClientPoolMetrics() {
+        return new HttpClientPoolMetrics();
+    }
+
+    // Publica en Micrometer el estado agregado de cada pool (el de /api/admin/http-clients/pools)
+    @Bean
+    public MeterBinder httpClientPoolMeterBinder(HttpClientPoolMetrics poolMetrics) {
+        return registry -> {
+            for (String pool : List.of(BANK, ANTIFRAUD)) {
+                gauge(registry, pool, "active", () -> poolMetrics.stats(pool).active());
+                gauge(registry, pool, "idle", () -> poolMetrics.stats(pool).idle());
+                gauge(registry, pool, "allocated", () -> poolMetrics.stats(pool).allocated());
+                gauge(registry, pool, "pending", () -> poolMetrics.stats(pool).pendingAcquires());
+                gauge(registry, pool, "max", () -> poolMetrics.stats(pool).maxConnections());
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider bankConnectionProvider(HttpClientProperties properties, HttpClientPoolMetrics poolMetrics) {
+        return connectionProvider(BANK, properties.client(BANK), poolMetrics);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider antiFraudConnectionProvider(HttpClientProperties properties, HttpClientPoolMetrics poolMetrics) {
+        return connectionProvider(ANTIFRAUD, properties.client(ANTIFRAUD), poolMetrics);
+    }
+
+    @Bean
+    public WebClient bankWebClient(WebClient.Builder builder, HttpClientProperties properties, ConnectionProvider bankConnectionProvider) {
+        return webClient(builder, properties.client(BANK), bankConnectionProvider);
+    }
+
+    @Bean
+    public WebClient antiFraudWebClient(WebClient.Builder builder, HttpClientProperties properties, ConnectionProvider antiFraudConnectionProvider) {
+        return webClient(builder, properties.client(ANTIFRAUD), antiFraudConnectionProvider);
+    }
+
+    private static void gauge(MeterRegistry registry, String pool, String state, Supplier<Number> value) {
+        Gauge.builder("payu.http.client.pool.connections", value)
+                .tag("pool", pool)
+                .tag("state", state)
+                .register(registry);
+    }
+
+    private ConnectionProvider connectionProvider(String name, HttpClientProperties.Downstream downstream, HttpClientPoolMetrics poolMetrics) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(downstream.getMaxConnections())
+                .pendingAcquireMaxCount(downstream.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(downstream.getPendingAcquireTimeout())
+                .maxIdleTime(downstream.getMaxIdleTime())
+                .maxLifeTime(downstream.getMaxLifeTime())
+                .evictInBackground(downstream.getEvictInBackground())
+                // LIFO reutiliza las conexiones calientes y deja expirar las sobrantes
+                .lifo()
+                .metrics(true, () -> poolMetrics)
+                .build();
+    }
+
+    // El builder de Spring Boot conserva los codecs y la instrumentación configurados en la aplicación.
+    // Se añade CBOR (el mismo que acepta Spring MVC en los mocks) y se fija el formato del servicio
+    private WebClient webClient(WebClient.Builder builder, HttpClientProperties.Downstream downstream, ConnectionProvider connectionProvider) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, downstream.isKeepAlive())
+                .keepAlive(downstream.isKeepAlive())
+                // responseTimeout ya es un plazo de lectura por solicitud. Los manejadores añadidos en
+                // doOnConnected solo valdrían para el primer intercambio de una conexión del pool:
+                // Reactor Netty los retira al devolverla. El de escritura se añade en cada solicitud
+                .responseTimeout(downstream.getResponseTimeout())
+                .doOnRequest((request, connection) -> connection
+                        .addHandlerLast(new WriteTimeoutHandler(downstream.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+        if (downstream.isHttp2()) {
+            boolean secure = downstream.getBaseUrl().startsWith("https");
+            httpClient = httpClient.protocol(secure ? HttpProtocol.H2 : HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        MediaType format = downstream.getFormat().mediaType();
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        return builder.clone()
+                .baseUrl(downstream.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> {
+                    codecs.customCodecs().register(new CborValueEncoder(cborMapper));
+                    codecs.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+                })
+                .defaultHeaders(headers -> {
+                    headers.setContentType(format);
+                    headers.setAccept(List.of(format, MediaType.APPLICATION_JSON));
+                })
+                .build();
+    }
+
+    // Jackson2CborEncoder rechaza encode() aunque el cuerpo sea un único valor (bodyValue); se codifica
+    // ese valor completo, que es lo que el codificador sí soporta
+    private static final class CborValueEncoder extends Jackson2CborEncoder {
+
+        CborValueEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            return Mono.from(inputStream)
+                    .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+    }
+}
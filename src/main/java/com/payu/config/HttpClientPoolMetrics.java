@@ -0,0 +1,57 @@
+package com.payu.config;
+
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Recibe de Reactor Netty las métricas de cada pool (uno por dirección remota) y las agrega por servicio externo
+public class HttpClientPoolMetrics implements ConnectionProvider.MeterRegistrar {
+
+    private final Map<String, Map<String, ConnectionPoolMetrics>> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.computeIfAbsent(poolName, name -> new ConcurrentHashMap<>()).put(id, metrics);
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        Map<String, ConnectionPoolMetrics> pool = pools.get(poolName);
+        if (pool != null) {
+            pool.remove(id);
+        }
+    }
+
+    public Map<String, PoolStats> snapshot() {
+        Map<String, PoolStats> snapshot = new TreeMap<>();
+        pools.forEach((poolName, pool) -> snapshot.put(poolName, stats(pool)));
+        return snapshot;
+    }
+
+    public PoolStats stats(String poolName) {
+        return stats(pools.getOrDefault(poolName, Map.of()));
+    }
+
+    private PoolStats stats(Map<String, ConnectionPoolMetrics> pool) {
+        int active = 0;
+        int idle = 0;
+        int allocated = 0;
+        int pending = 0;
+        int maxAllocated = 0;
+        for (ConnectionPoolMetrics metrics : pool.values()) {
+            active += metrics.acquiredSize();
+            idle += metrics.idleSize();
+            allocated += metrics.allocatedSize();
+            pending += metrics.pendingAcquireSize();
+            maxAllocated += metrics.maxAllocatedSize();
+        }
+        return new PoolStats(active, idle, allocated, pending, maxAllocated);
+    }
+
+    public record PoolStats(int active, int idle, int allocated, int pendingAcquires, int maxConnections) {
+    }
+}
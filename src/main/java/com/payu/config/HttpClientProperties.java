@@ -0,0 +1,65 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.http.MediaType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "payu.http")
+public class HttpClientProperties {
+
+    // Un pool de conexiones independiente por servicio externo (bank, antifraud)
+    private Map<String, Downstream> clients = new LinkedHashMap<>();
+
+    public Downstream client(String name) {
+        Downstream downstream = clients.get(name);
+        if (downstream == null) {
+            throw new IllegalStateException("No hay configuración HTTP para el servicio externo '" + name + "'.");
+        }
+        return downstream;
+    }
+
+    @Data
+    public static class Downstream {
+        private String baseUrl;
+
+        private int maxConnections = 100;
+        // Solicitudes que pueden esperar una conexión libre antes de fallar de inmediato
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+
+        private boolean keepAlive = true;
+        private boolean http2 = false;
+
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        // Por solicitud: plazo para enviar el cuerpo, y entre dos lecturas de la respuesta desde que
+        // termina el envío (también cubre la espera de las cabeceras)
+        private Duration writeTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(3);
+
+        // Formato de los cuerpos enviados; la respuesta se negocia y se acepta también en JSON
+        private Format format = Format.JSON;
+    }
+
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR);
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "payu.idempotency")
+public class IdempotencyProperties {
+
+    // Entradas en memoria; las que se expulsan siguen disponibles en la tabla hasta que vence ttl
+    private long cacheMaxSize = 100_000;
+    private Duration ttl = Duration.ofHours(24);
+    // Clave del HMAC de request_hash; debe ser la misma en todas las instancias y entre reinicios
+    private String hashSecret;
+}
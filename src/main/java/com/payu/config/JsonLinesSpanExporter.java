@@ -0,0 +1,113 @@
+package com.payu.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+// Escribe cada span como una línea JSON (traceId, spanId, parentSpanId, nombre, duración y
+// atributos). Sustituye a un colector OTLP en pruebas locales: jq basta para reconstruir una traza
+@Slf4j
+public class JsonLinesSpanExporter implements SpanExporter {
+
+    private final BufferedWriter writer;
+
+    public JsonLinesSpanExporter(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            StringBuilder line = new StringBuilder(512);
+            for (SpanData span : spans) {
+                line.setLength(0);
+                line.append("{\"traceId\":\"").append(span.getTraceId())
+                        .append("\",\"spanId\":\"").append(span.getSpanId())
+                        .append("\",\"parentSpanId\":\"").append(span.getParentSpanId())
+                        .append("\",\"name\":");
+                appendString(line, span.getName());
+                line.append(",\"kind\":\"").append(span.getKind())
+                        .append("\",\"startEpochNanos\":").append(span.getStartEpochNanos())
+                        .append(",\"durationMicros\":").append((span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000)
+                        .append(",\"status\":\"").append(span.getStatus().getStatusCode())
+                        .append("\",\"attributes\":{");
+                boolean first = true;
+                for (Map.Entry<AttributeKey<?>, Object> attribute : span.getAttributes().asMap().entrySet()) {
+                    if (!first) {
+                        line.append(',');
+                    }
+                    first = false;
+                    appendString(line, attribute.getKey().getKey());
+                    line.append(':');
+                    appendString(line, String.valueOf(attribute.getValue()));
+                }
+                line.append("}}");
+                writer.write(line.toString());
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("No se pudieron escribir {} spans", spans.size(), e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            writer.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
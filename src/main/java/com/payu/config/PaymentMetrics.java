@@ -0,0 +1,130 @@
+package com.payu.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Métricas del flujo de pagos: una observación por etapa, contadores por resultado (los mismos que
+// distingue GlobalExceptionHandler) y solicitudes en curso por operación. Cada observación produce
+// el timer payu.payment.stage y, con el trazado activo, un span hijo de la solicitud HTTP
+@Component
+public class PaymentMetrics {
+
+    public enum Operation {
+        PAYMENT,
+        REFUND
+    }
+
+    public enum Stage {
+        VALIDATION,
+        ANTIFRAUD,
+        BANK,
+        RESERVE,
+        PERSIST
+    }
+
+    private static final String STAGE = "payu.payment.stage";
+
+    private final MeterRegistry registry;
+    private final ObservationRegistry observationRegistry;
+    private final Map<Operation, AtomicInteger> inFlight = new EnumMap<>(Operation.class);
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+
+    public PaymentMetrics(MeterRegistry registry, ObservationRegistry observationRegistry) {
+        this.registry = registry;
+        this.observationRegistry = observationRegistry;
+        for (Operation operation : Operation.values()) {
+            AtomicInteger current = new AtomicInteger();
+            inFlight.put(operation, current);
+            Gauge.builder("payu.payment.inflight", current, AtomicInteger::get)
+                    .description("Solicitudes en curso")
+                    .tag("operation", tag(operation))
+                    .register(registry);
+        }
+    }
+
+    // La observación queda en el ThreadLocal durante la llamada: las llamadas de WebClient que se
+    // bloquean dentro de ella la toman como padre y propagan el contexto a los servicios externos
+    public <T> T record(Operation operation, Stage stage, Supplier<T> call) {
+        Observation observation = observation(operation, stage).start();
+        String result = "error";
+        try (Observation.Scope scope = observation.openScope()) {
+            T value = call.get();
+            result = "success";
+            return value;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.lowCardinalityKeyValue("result", result).stop();
+        }
+    }
+
+    public void record(Operation operation, Stage stage, Runnable call) {
+        record(operation, stage, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    // En el flujo reactivo la observación padre viaja en el contexto de Reactor
+    public <T> Mono<T> record(Operation operation, Stage stage, Mono<T> mono) {
+        return Mono.deferContextual(context -> {
+            Observation observation = observation(operation, stage)
+                    .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
+                    .start();
+            return mono.doOnError(observation::error)
+                    .doFinally(signal -> observation.lowCardinalityKeyValue("result", result(signal)).stop())
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    // Cuenta la solicitud como en curso hasta que termina y registra el resultado si tiene éxito;
+    // los errores los cuenta GlobalExceptionHandler
+    public <T> Mono<T> track(Operation operation, Mono<T> mono) {
+        AtomicInteger current = inFlight.get(operation);
+        return mono.doOnSubscribe(subscription -> current.incrementAndGet())
+                .doOnSuccess(value -> outcome(operation == Operation.PAYMENT ? "approved" : "refunded"))
+                .doFinally(signal -> current.decrementAndGet());
+    }
+
+    public void outcome(String outcome) {
+        outcomes.computeIfAbsent(outcome, name -> Counter.builder("payu.payment.outcomes")
+                        .description("Resultados de las solicitudes de pago y reembolso")
+                        .tag("outcome", name)
+                        .register(registry))
+                .increment();
+    }
+
+    private Observation observation(Operation operation, Stage stage) {
+        return Observation.createNotStarted(STAGE, observationRegistry)
+                .contextualName(tag(operation) + ' ' + tag(stage))
+                .lowCardinalityKeyValue("operation", tag(operation))
+                .lowCardinalityKeyValue("stage", tag(stage));
+    }
+
+    private static String result(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case CANCEL -> "cancelled";
+            default -> "error";
+        };
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
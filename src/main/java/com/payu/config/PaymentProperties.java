@@ -0,0 +1,68 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "payu.payment")
+public class PaymentProperties {
+
+    // BLOCKING ejecuta el flujo en el hilo del servlet; REACTIVE compone el flujo completo
+    // sobre WebClient y libera el hilo mientras se espera a los servicios externos
+    private ExecutionMode executionMode = ExecutionMode.BLOCKING;
+
+    // SEQUENTIAL consulta antifraude y luego el banco; SPECULATIVE lanza ambas llamadas a la vez
+    // y anula la autorización bancaria si antifraude no aprueba el pago
+    private Pipeline pipeline = Pipeline.SEQUENTIAL;
+
+    private Bulk bulk = new Bulk();
+
+    private Async async = new Async();
+
+    private Webhook webhook = new Webhook();
+
+    // POST /api/payments/bulk: concurrency limita las llamadas externas en curso por lote y
+    // maxConcurrentRequests los lotes simultáneos, para que un lote grande no agote los bulkheads
+    // que comparte con el tráfico interactivo
+    @Data
+    public static class Bulk {
+        private int concurrency = 16;
+        private int maxConcurrentRequests = 2;
+        private int maxItems = 10_000;
+        private int batchSize = 100;
+        private Duration flushInterval = Duration.ofMillis(10);
+    }
+
+    // Con enabled POST /api/payments guarda el pago PENDING y responde 202; workers hilos lo procesan
+    // desde una cola de queueCapacity pagos y, llena la cola, los nuevos se rechazan con 503
+    @Data
+    public static class Async {
+        private boolean enabled = false;
+        private int workers = 16;
+        private int queueCapacity = 1000;
+    }
+
+    // Notificación del resultado de los pagos asíncronos: POST de la transacción a url, firmada con
+    // HMAC-SHA256 si hay secret, con reintentos y espera exponencial ante fallos transitorios
+    @Data
+    public static class Webhook {
+        private String url;
+        private String secret;
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofMinutes(1);
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    public enum ExecutionMode {
+        BLOCKING,
+        REACTIVE
+    }
+
+    public enum Pipeline {
+        SEQUENTIAL,
+        SPECULATIVE
+    }
+}
@@ -0,0 +1,70 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "payu.persistence")
+public class PersistenceProperties {
+
+    private Mode mode = Mode.DIRECT;
+    private Scheduler scheduler = new Scheduler();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Journal journal = new Journal();
+    // Espera máxima de una solicitud por la confirmación de la escritura diferida o del diario
+    private Duration ackTimeout = Duration.ofSeconds(10);
+
+    public enum Mode {
+        DIRECT,
+        WRITE_BEHIND,
+        // La transacción se confirma al escribirse en el diario; la base se actualiza después como proyección
+        JOURNAL
+    }
+
+    @Data
+    public static class Scheduler {
+        // Debe coincidir con el tamaño del pool de conexiones JDBC para no encolar hilos sin conexión
+        private int threads = 10;
+        private int queueCapacity = 10_000;
+    }
+
+    @Data
+    public static class WriteBehind {
+        // Se vacía la cola al reunir batchSize transacciones o al cumplirse flushInterval desde la primera
+        private int batchSize = 100;
+        private Duration flushInterval = Duration.ofMillis(5);
+        private int queueCapacity = 10_000;
+        // Espera máxima por un hueco en la cola llena antes de rechazar la solicitud
+        private Duration offerTimeout = Duration.ofMillis(100);
+        private Ack ack = Ack.FLUSHED;
+        // Intentos de un lote fallido, con espera exponencial desde retryBackoff, antes de insertar
+        // sus transacciones una a una
+        private int flushAttempts = 5;
+        private Duration retryBackoff = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class Journal {
+        private String directory = "data/journal";
+        // Al superarlo se abre un segmento nuevo
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        // Registros por escritura y fsync como máximo. Con flushInterval cero se escribe lo que haya
+        // en cola sin esperar: los lotes crecen solos mientras dura el fsync anterior
+        private int batchSize = 512;
+        private Duration flushInterval = Duration.ZERO;
+        private int queueCapacity = 10_000;
+        private Duration offerTimeout = Duration.ofMillis(100);
+        // Sin fsync una caída del proceso no pierde nada, pero una del sistema operativo puede perder los últimos lotes
+        private boolean fsync = true;
+    }
+
+    public enum Ack {
+        // La respuesta espera a que la transacción esté confirmada en la base de datos
+        FLUSHED,
+        // La respuesta sale al encolar: una caída antes del siguiente lote pierde la transacción
+        ENQUEUED
+    }
+}
@@ -0,0 +1,46 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Reglas locales que se evalúan antes de la consulta antifraude remota. Solo los casos dudosos
+// (REVIEW) llegan al servicio remoto
+@Data
+@ConfigurationProperties(prefix = "payu.antifraud.prescreening")
+public class PreScreeningProperties {
+
+    private boolean enabled = true;
+    private Velocity velocity = new Velocity();
+    // Umbrales por moneda; una moneda sin umbrales siempre se revisa en remoto
+    private Map<String, Threshold> thresholds = new LinkedHashMap<>();
+    // Prefijos de 6 a 8 dígitos rechazados localmente
+    private Set<String> blockedBins = new LinkedHashSet<>();
+
+    @Data
+    public static class Velocity {
+        private Duration window = Duration.ofMinutes(1);
+        // La ventana se desliza en pasos de window / slots
+        private int slots = 6;
+        // Más intentos por tarjeta en la ventana: a partir de reviewAbove se consulta el servicio
+        // remoto y por encima de rejectAbove se rechaza directamente
+        private int reviewAbove = 10;
+        private int rejectAbove = 30;
+        // Tamaño del sketch de conteo (filas x columnas, potencia de dos) compartido por todas las tarjetas
+        private int sketchDepth = 4;
+        private int sketchWidth = 16_384;
+    }
+
+    @Data
+    public static class Threshold {
+        // Por debajo se acepta localmente; por encima se rechaza; entre ambos se revisa en remoto
+        private BigDecimal acceptBelow;
+        private BigDecimal rejectAbove;
+    }
+}
@@ -0,0 +1,18 @@
+package com.payu.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class ReactorConfig {
+
+    // JDBC es bloqueante: las llamadas JPA del flujo reactivo se ejecutan en este scheduler
+    // acotado y nunca en los hilos de Reactor Netty
+    @Bean(destroyMethod = "dispose")
+    public Scheduler persistenceScheduler(PersistenceProperties properties) {
+        PersistenceProperties.Scheduler scheduler = properties.getScheduler();
+        return Schedulers.newBoundedElastic(scheduler.getThreads(), scheduler.getQueueCapacity(), "payu-persistence");
+    }
+}
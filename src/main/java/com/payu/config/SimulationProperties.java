@@ -0,0 +1,16 @@
+package com.payu.config;
+
+import com.payu.model.SimulationProfile;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Perfiles iniciales de los mocks; pueden cambiarse en caliente en /api/mock/admin/simulation
+@Data
+@ConfigurationProperties(prefix = "payu.simulation")
+public class SimulationProperties {
+
+    private Map<String, SimulationProfile> profiles = new LinkedHashMap<>();
+}
@@ -0,0 +1,21 @@
+package com.payu.config;
+
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class TracingConfig {
+
+    // Spring Boot añade cualquier SpanExporter al BatchSpanProcessor del SDK de OpenTelemetry,
+    // junto al exportador OTLP si está configurado
+    @Bean
+    @ConditionalOnProperty(prefix = "payu.tracing.file", name = "path")
+    public SpanExporter fileSpanExporter(TracingProperties properties) throws IOException {
+        return new JsonLinesSpanExporter(Path.of(properties.getFile().getPath()));
+    }
+}
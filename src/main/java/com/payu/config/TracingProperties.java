@@ -0,0 +1,17 @@
+package com.payu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "payu.tracing")
+public class TracingProperties {
+
+    private File file = new File();
+
+    @Data
+    public static class File {
+        // Vacío: no se escriben spans a disco (OTLP se activa con management.otlp.tracing.endpoint)
+        private String path;
+    }
+}
@@ -0,0 +1,48 @@
+package com.payu.controller;
+
+import com.payu.model.CacheInvalidationRequest;
+import com.payu.service.FraudVerdictCache;
+import com.payu.service.PreScreeningService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/antifraud")
+public class AntiFraudAdminController {
+
+    @Autowired
+    private FraudVerdictCache fraudVerdictCache;
+
+    @Autowired
+    private PreScreeningService preScreeningService;
+
+    @GetMapping("/prescreening")
+    public PreScreeningService.Stats preScreeningStats() {
+        return preScreeningService.stats();
+    }
+
+    @GetMapping("/cache")
+    public FraudVerdictCache.Stats cacheStats() {
+        return fraudVerdictCache.stats();
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> invalidateAll() {
+        fraudVerdictCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    // El número de tarjeta va en el cuerpo para no dejarlo en URLs ni en logs de acceso
+    @PostMapping("/cache/invalidations")
+    public ResponseEntity<Void> invalidateCard(@Valid @RequestBody CacheInvalidationRequest request) {
+        fraudVerdictCache.invalidateCard(request.getCardNumber());
+        return ResponseEntity.noContent().build();
+    }
+}
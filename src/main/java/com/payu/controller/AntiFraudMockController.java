@@ -1,22 +1,56 @@
 package com.payu.controller;
 
+import com.payu.config.HttpClientConfig;
 import com.payu.model.AntiFraudResponse;
-import com.payu.model.PaymentRequest;
+import com.payu.model.FraudCheckRequest;
+import com.payu.service.SimulationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.List;
 
+// Acepta cuerpos JSON o CBOR según Content-Type y responde en el formato que pida Accept
 @RestController
 @RequestMapping("/api/mock/antifraud")
 public class AntiFraudMockController {
 
-    @PostMapping("/check")
-    public AntiFraudResponse check(@RequestBody PaymentRequest request) {
+    private static final BigDecimal FRAUD_THRESHOLD = new BigDecimal("1000");
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @PostMapping(value = "/check", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> check(@RequestBody FraudCheckRequest request) {
+        return simulationService.respond(HttpClientConfig.ANTIFRAUD, () -> score(request));
+    }
+
+    @PostMapping(value = "/check", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public Mono<ResponseEntity<byte[]>> checkCbor(@RequestBody FraudCheckRequest request) {
+        return simulationService.respondCbor(HttpClientConfig.ANTIFRAUD, () -> score(request));
+    }
+
+    // Una sola latencia simulada para todo el lote; los veredictos siguen el orden de la solicitud
+    @PostMapping(value = "/check/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> checkBatch(@RequestBody List<FraudCheckRequest> requests) {
+        return simulationService.respond(HttpClientConfig.ANTIFRAUD, () -> requests.stream().map(this::score).toList());
+    }
+
+    @PostMapping(value = "/check/batch", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public Mono<ResponseEntity<byte[]>> checkBatchCbor(@RequestBody List<FraudCheckRequest> requests) {
+        return simulationService.respondCbor(HttpClientConfig.ANTIFRAUD, () -> requests.stream().map(this::score).toList());
+    }
+
+    private AntiFraudResponse score(FraudCheckRequest request) {
         AntiFraudResponse response = new AntiFraudResponse();
-        response.setFraudulent(request.getAmount().compareTo(new BigDecimal("1000")) > 0);
+        response.setFraudulent(request.getAmount().compareTo(FRAUD_THRESHOLD) > 0);
 
         return response;
     }
@@ -1,21 +1,62 @@
 package com.payu.controller;
 
+import com.payu.config.HttpClientConfig;
+import com.payu.model.BankAuthorizationRequest;
 import com.payu.model.BankResponse;
-import com.payu.model.PaymentRequest;
 import com.payu.model.RefundRequest;
+import com.payu.model.VoidRequest;
+import com.payu.service.SimulationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.UUID;
 
+// Acepta cuerpos JSON o CBOR según Content-Type y responde en el formato que pida Accept
 @RestController
 @RequestMapping("/api/mock/bank")
 public class BankMockController {
 
-    @PostMapping("/payments")
-    public BankResponse processPayment(@RequestBody PaymentRequest request) {
+    @Autowired
+    private SimulationService simulationService;
+
+    @PostMapping(value = "/payments", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> processPayment(@RequestBody BankAuthorizationRequest request) {
+        return simulationService.respond(HttpClientConfig.BANK, () -> authorize(request));
+    }
+
+    @PostMapping(value = "/payments", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public Mono<ResponseEntity<byte[]>> processPaymentCbor(@RequestBody BankAuthorizationRequest request) {
+        return simulationService.respondCbor(HttpClientConfig.BANK, () -> authorize(request));
+    }
+
+    @PostMapping(value = "/refunds", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> processRefund(@RequestBody RefundRequest request) {
+        return simulationService.respond(HttpClientConfig.BANK, this::refund);
+    }
+
+    @PostMapping(value = "/refunds", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public Mono<ResponseEntity<byte[]>> processRefundCbor(@RequestBody RefundRequest request) {
+        return simulationService.respondCbor(HttpClientConfig.BANK, this::refund);
+    }
+
+    @PostMapping(value = "/voids", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> voidPayment(@RequestBody VoidRequest request) {
+        return simulationService.respond(HttpClientConfig.BANK, () -> voidAuthorization(request));
+    }
+
+    @PostMapping(value = "/voids", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public Mono<ResponseEntity<byte[]>> voidPaymentCbor(@RequestBody VoidRequest request) {
+        return simulationService.respondCbor(HttpClientConfig.BANK, () -> voidAuthorization(request));
+    }
+
+    private BankResponse authorize(BankAuthorizationRequest request) {
         BankResponse response = new BankResponse();
 
         if (request.getCardNumber().endsWith("0000")) {
@@ -30,12 +71,19 @@ public class BankMockController {
         return response;
     }
 
-    @PostMapping("/refunds")
-    public BankResponse processRefund(@RequestBody RefundRequest request) {
+    private BankResponse refund() {
         BankResponse response = new BankResponse();
         response.setStatus("REFUNDED");
         response.setTransactionId(UUID.randomUUID().toString());
         response.setMessage("Reembolso procesado exitosamente.");
         return response;
     }
+
+    private BankResponse voidAuthorization(VoidRequest request) {
+        BankResponse response = new BankResponse();
+        response.setStatus("VOIDED");
+        response.setTransactionId(request.getBankTransactionId());
+        response.setMessage("Autorización anulada.");
+        return response;
+    }
 }
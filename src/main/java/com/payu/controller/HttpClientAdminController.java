@@ -0,0 +1,22 @@
+package com.payu.controller;
+
+import com.payu.config.HttpClientPoolMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/http-clients")
+public class HttpClientAdminController {
+
+    @Autowired
+    private HttpClientPoolMetrics httpClientPoolMetrics;
+
+    @GetMapping("/pools")
+    public Map<String, HttpClientPoolMetrics.PoolStats> pools() {
+        return httpClientPoolMetrics.snapshot();
+    }
+}
@@ -1,16 +1,32 @@
 package com.payu.controller;
 
+import com.payu.config.PaymentMetrics;
+import com.payu.config.PaymentProperties;
+import com.payu.model.BulkPaymentResult;
 import com.payu.model.PaymentRequest;
 import com.payu.model.RefundRequest;
 import com.payu.model.Transaction;
+import com.payu.service.AsyncPaymentService;
+import com.payu.service.BulkPaymentService;
+import com.payu.service.IdempotencyService;
 import com.payu.service.PaymentService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -19,15 +35,75 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private PaymentProperties paymentProperties;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private BulkPaymentService bulkPaymentService;
+
+    @Autowired
+    private PaymentMetrics paymentMetrics;
+
+    @Autowired
+    private AsyncPaymentService asyncPaymentService;
+
+    @Autowired
+    private Scheduler persistenceScheduler;
+
+    // Con Idempotency-Key los reintentos del cliente devuelven el pago ya realizado sin repetirlo
     @PostMapping
-    public ResponseEntity<Transaction> makePayment(@Valid @RequestBody PaymentRequest request) {
-        Transaction transaction = paymentService.processPayment(request);
-        return ResponseEntity.status(201).body(transaction);
+    public Mono<ResponseEntity<Transaction>> makePayment(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                         @Valid @RequestBody PaymentRequest request) {
+        if (asyncPaymentService.isEnabled()) {
+            return makeAsyncPayment(idempotencyKey, request);
+        }
+        Supplier<Mono<Transaction>> payment = () -> execute(() -> paymentService.processPayment(request),
+                () -> paymentService.processPaymentReactive(request));
+        Mono<Transaction> result = idempotencyKey == null
+                ? payment.get()
+                : idempotencyService.execute(idempotencyKey, request, payment);
+        return paymentMetrics.track(PaymentMetrics.Operation.PAYMENT, result)
+                .map(transaction -> ResponseEntity.status(201).body(transaction));
+    }
+
+    // Modo asíncrono: responde 202 en cuanto el pago queda guardado PENDING. El estado final se
+    // consulta en Location o llega por el webhook; un reintento con la misma Idempotency-Key
+    // devuelve la misma transacción con su estado actual
+    private Mono<ResponseEntity<Transaction>> makeAsyncPayment(String idempotencyKey, PaymentRequest request) {
+        Supplier<Mono<Transaction>> payment = () -> execute(() -> asyncPaymentService.submit(request),
+                () -> Mono.fromCallable(() -> asyncPaymentService.submit(request)).subscribeOn(persistenceScheduler));
+        Mono<Transaction> result = idempotencyKey == null
+                ? payment.get()
+                : idempotencyService.execute(idempotencyKey, request, payment);
+        return result.map(transaction -> ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/" + transaction.getId()))
+                .body(transaction));
+    }
+
+    // Carga masiva: arreglo JSON o NDJSON de pagos. Cada resultado se envía en NDJSON en cuanto su
+    // pago termina, identificado por su posición en el lote
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkPaymentResult> makeBulkPayment(InputStream body) {
+        return bulkPaymentService.process(bulkPaymentService.read(body));
     }
 
     @PostMapping("/refunds")
-    public ResponseEntity<Transaction> makeRefund(@Valid @RequestBody RefundRequest request) {
-        Transaction transaction = paymentService.processRefund(request);
-        return ResponseEntity.status(201).body(transaction);
+    public Mono<ResponseEntity<Transaction>> makeRefund(@Valid @RequestBody RefundRequest request) {
+        Mono<Transaction> result = execute(() -> paymentService.processRefund(request), () -> paymentService.processRefundReactive(request));
+        return paymentMetrics.track(PaymentMetrics.Operation.REFUND, result)
+                .map(transaction -> ResponseEntity.status(201).body(transaction));
+    }
+
+    // En modo BLOCKING el Mono se suscribe en el hilo del servlet, por lo que el flujo se ejecuta
+    // allí mismo; en modo REACTIVE el hilo se libera hasta que el pipeline completo termina
+    private Mono<Transaction> execute(Callable<Transaction> blocking, Supplier<Mono<Transaction>> reactive) {
+        if (paymentProperties.getExecutionMode() == PaymentProperties.ExecutionMode.REACTIVE) {
+            return reactive.get();
+        }
+        return Mono.fromCallable(blocking);
     }
-}
\ No newline at end of file
+}
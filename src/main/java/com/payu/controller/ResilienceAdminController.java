@@ -0,0 +1,64 @@
+package com.payu.controller;
+
+import com.payu.config.CircuitBreakerTransitions;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/admin/resilience")
+public class ResilienceAdminController {
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    private CircuitBreakerTransitions circuitBreakerTransitions;
+
+    @GetMapping("/circuit-breakers")
+    public Map<String, CircuitBreakerStatus> circuitBreakers() {
+        Map<String, CircuitBreakerStatus> status = new TreeMap<>();
+        for (CircuitBreaker circuitBreaker : circuitBreakerRegistry.getAllCircuitBreakers()) {
+            CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+            status.put(circuitBreaker.getName(), new CircuitBreakerStatus(
+                    circuitBreaker.getState(),
+                    metrics.getFailureRate(),
+                    metrics.getSlowCallRate(),
+                    metrics.getNumberOfBufferedCalls(),
+                    metrics.getNumberOfFailedCalls(),
+                    metrics.getNumberOfNotPermittedCalls(),
+                    circuitBreakerTransitions.counts(circuitBreaker.getName())));
+        }
+        return status;
+    }
+
+    @GetMapping("/bulkheads")
+    public Map<String, BulkheadStatus> bulkheads() {
+        Map<String, BulkheadStatus> status = new TreeMap<>();
+        for (Bulkhead bulkhead : bulkheadRegistry.getAllBulkheads()) {
+            status.put(bulkhead.getName(), new BulkheadStatus(
+                    bulkhead.getMetrics().getAvailableConcurrentCalls(),
+                    bulkhead.getMetrics().getMaxAllowedConcurrentCalls()));
+        }
+        return status;
+    }
+
+    public record CircuitBreakerStatus(CircuitBreaker.State state, float failureRate, float slowCallRate,
+                                       int bufferedCalls, int failedCalls, long notPermittedCalls,
+                                       Map<String, Long> transitions) {
+    }
+
+    public record BulkheadStatus(int availableConcurrentCalls, int maxAllowedConcurrentCalls) {
+    }
+}
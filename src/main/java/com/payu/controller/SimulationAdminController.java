@@ -0,0 +1,44 @@
+package com.payu.controller;
+
+import com.payu.model.SimulationProfile;
+import com.payu.service.SimulationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/mock/admin/simulation")
+public class SimulationAdminController {
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @GetMapping
+    public Map<String, SimulationProfile> profiles() {
+        return simulationService.profiles();
+    }
+
+    @GetMapping("/{downstream}")
+    public SimulationProfile profile(@PathVariable String downstream) {
+        return simulationService.profile(downstream);
+    }
+
+    @PutMapping("/{downstream}")
+    public SimulationProfile update(@PathVariable String downstream, @Valid @RequestBody SimulationProfile profile) {
+        return simulationService.update(downstream, profile);
+    }
+
+    // Vuelve al perfil configurado en payu.simulation.profiles
+    @DeleteMapping("/{downstream}")
+    public SimulationProfile reset(@PathVariable String downstream) {
+        return simulationService.reset(downstream);
+    }
+}
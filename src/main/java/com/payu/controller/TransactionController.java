@@ -0,0 +1,110 @@
+package com.payu.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.payu.model.MaskedCardNumber;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionPage;
+import com.payu.model.TransactionQuery;
+import com.payu.service.TransactionQueryService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/transactions")
+public class TransactionController {
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private TransactionQueryService transactionQueryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Filtros opcionales: cardNumber, type, status, originalTransactionId, from y to (ISO-8601).
+    // Para la página siguiente se envía after=<nextCursor>
+    @GetMapping
+    public TransactionPage search(TransactionQuery query,
+                                  @RequestParam(required = false) Long after,
+                                  @RequestParam(defaultValue = "" + TransactionQueryService.DEFAULT_PAGE_SIZE) int limit) {
+        return transactionQueryService.page(query, after, limit);
+    }
+
+    @GetMapping("/{id}")
+    public Transaction find(@PathVariable Long id) {
+        return transactionQueryService.find(id);
+    }
+
+    // Exporta todas las transacciones que cumplen los filtros en NDJSON o CSV. Se escribe fila a fila
+    // en el hilo del servlet mientras se lee el cursor, sin acumular el resultado ni plazo de async
+    @GetMapping("/export")
+    public void export(TransactionQuery query, @RequestParam(defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        boolean csv = switch (format) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new IllegalArgumentException("Formato de exportación no soportado: " + format + ".");
+        };
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(csv ? "text/csv" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + format + "\"");
+
+        ObjectWriter json = objectMapper.writerFor(Transaction.class);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE)) {
+            if (csv) {
+                out.write("id,cardNumber,amount,currency,type,status,timestamp,originalTransactionId,bankTransactionId,refundedAmount\n");
+            }
+            transactionQueryService.export(query, transaction -> {
+                try {
+                    out.write(csv ? csvRow(transaction) : json.writeValueAsString(transaction));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String csvRow(Transaction transaction) {
+        return String.join(",",
+                String.valueOf(transaction.getId()),
+                csvValue(MaskedCardNumber.mask(transaction.getCardNumber())),
+                csvValue(transaction.getAmount()),
+                csvValue(transaction.getCurrency()),
+                csvValue(transaction.getType()),
+                csvValue(transaction.getStatus()),
+                csvValue(transaction.getTimestamp()),
+                csvValue(transaction.getOriginalTransactionId()),
+                csvValue(transaction.getBankTransactionId()),
+                csvValue(transaction.getRefundedAmount()));
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,7 @@
+package com.payu.exception;
+
+public class BulkCapacityExceededException extends RuntimeException {
+    public BulkCapacityExceededException(String message) {
+        super(message);
+    }
+}
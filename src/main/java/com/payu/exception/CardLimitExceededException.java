@@ -0,0 +1,7 @@
+package com.payu.exception;
+
+public class CardLimitExceededException extends RuntimeException {
+    public CardLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.payu.exception;
+
+public class DownstreamUnavailableException extends RuntimeException {
+    public DownstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
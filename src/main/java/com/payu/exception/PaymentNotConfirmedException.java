@@ -0,0 +1,22 @@
+package com.payu.exception;
+
+import com.payu.model.Transaction;
+
+import java.util.concurrent.CompletableFuture;
+
+// El banco aprobó el pago pero su transacción no llegó a confirmarse. Con saved la transacción aún
+// puede guardarse y saved termina cuando se sabe; sin él la autorización no pudo anularse y repetir
+// el pago la duplicaría
+public class PaymentNotConfirmedException extends PersistenceOverloadedException {
+
+    private final transient CompletableFuture<Transaction> saved;
+
+    public PaymentNotConfirmedException(String message, CompletableFuture<Transaction> saved) {
+        super(message);
+        this.saved = saved;
+    }
+
+    public CompletableFuture<Transaction> getSaved() {
+        return saved;
+    }
+}
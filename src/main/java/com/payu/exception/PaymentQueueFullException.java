@@ -0,0 +1,7 @@
+package com.payu.exception;
+
+public class PaymentQueueFullException extends RuntimeException {
+    public PaymentQueueFullException(String message) {
+        super(message);
+    }
+}
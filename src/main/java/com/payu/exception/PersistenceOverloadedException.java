@@ -0,0 +1,7 @@
+package com.payu.exception;
+
+public class PersistenceOverloadedException extends RuntimeException {
+    public PersistenceOverloadedException(String message) {
+        super(message);
+    }
+}
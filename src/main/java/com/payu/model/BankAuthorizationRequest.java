@@ -0,0 +1,26 @@
+package com.payu.model;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+// Lo que el banco necesita para autorizar un pago; el titular no viaja
+@Data
+public class BankAuthorizationRequest {
+    private String cardNumber;
+    private YearMonth expirationDate;
+    private String cvv;
+    private BigDecimal amount;
+    private String currency;
+
+    public static BankAuthorizationRequest from(PaymentRequest request) {
+        BankAuthorizationRequest authorization = new BankAuthorizationRequest();
+        authorization.setCardNumber(request.getCardNumber());
+        authorization.setExpirationDate(request.getExpirationDate());
+        authorization.setCvv(request.getCvv());
+        authorization.setAmount(request.getAmount());
+        authorization.setCurrency(request.getCurrency());
+        return authorization;
+    }
+}
@@ -0,0 +1,42 @@
+package com.payu.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+// Resultado de un pago de la carga masiva. Los resultados se emiten a medida que terminan, no en
+// el orden de entrada: index es la posición del pago en el lote
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkPaymentResult {
+
+    private long index;
+    private Status status;
+    private Transaction transaction;
+    private String message;
+
+    public enum Status {
+        APPROVED,
+        DECLINED,
+        FRAUD,
+        INVALID,
+        UNAVAILABLE,
+        REJECTED,
+        ERROR
+    }
+
+    public static BulkPaymentResult approved(long index, Transaction transaction) {
+        BulkPaymentResult result = new BulkPaymentResult();
+        result.setIndex(index);
+        result.setStatus(Status.APPROVED);
+        result.setTransaction(transaction);
+        return result;
+    }
+
+    public static BulkPaymentResult failed(long index, Status status, String message) {
+        BulkPaymentResult result = new BulkPaymentResult();
+        result.setIndex(index);
+        result.setStatus(status);
+        result.setMessage(message);
+        return result;
+    }
+}
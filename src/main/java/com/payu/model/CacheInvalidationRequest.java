@@ -0,0 +1,11 @@
+package com.payu.model;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class CacheInvalidationRequest {
+
+    @NotBlank
+    private String cardNumber;
+}
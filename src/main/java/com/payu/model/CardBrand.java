@@ -0,0 +1,56 @@
+package com.payu.model;
+
+// Marcas reconocidas por rango de BIN (primeros 6 dígitos). Las longitudes válidas se guardan
+// como máscara de bits: el bit n indica que se admiten tarjetas de n dígitos
+public enum CardBrand {
+    VISA(lengths(13, 16, 19)),
+    MASTERCARD(lengths(16)),
+    AMEX(lengths(15)),
+    DISCOVER(lengths(16, 17, 18, 19)),
+    DINERS(lengths(14, 15, 16, 17, 18, 19)),
+    JCB(lengths(16, 17, 18, 19)),
+    UNKNOWN(lengths(12, 13, 14, 15, 16, 17, 18, 19));
+
+    private final int lengthMask;
+
+    CardBrand(int lengthMask) {
+        this.lengthMask = lengthMask;
+    }
+
+    public boolean acceptsLength(int length) {
+        return length < Integer.SIZE && (lengthMask & (1 << length)) != 0;
+    }
+
+    public static CardBrand fromBin(int bin) {
+        int prefix2 = bin / 10_000;
+        int prefix3 = bin / 1_000;
+        int prefix4 = bin / 100;
+        if (bin / 100_000 == 4) {
+            return VISA;
+        }
+        if ((prefix2 >= 51 && prefix2 <= 55) || (prefix4 >= 2221 && prefix4 <= 2720)) {
+            return MASTERCARD;
+        }
+        if (prefix2 == 34 || prefix2 == 37) {
+            return AMEX;
+        }
+        if (prefix4 == 6011 || prefix2 == 65 || (prefix3 >= 644 && prefix3 <= 649)) {
+            return DISCOVER;
+        }
+        if ((prefix3 >= 300 && prefix3 <= 305) || prefix2 == 36 || prefix2 == 38 || prefix2 == 39) {
+            return DINERS;
+        }
+        if (prefix4 >= 3528 && prefix4 <= 3589) {
+            return JCB;
+        }
+        return UNKNOWN;
+    }
+
+    private static int lengths(int... lengths) {
+        int mask = 0;
+        for (int length : lengths) {
+            mask |= 1 << length;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,21 @@
+package com.payu.model;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Lo que el antifraude necesita para puntuar un pago; ni el titular, ni el CVV, ni el vencimiento
+@Data
+public class FraudCheckRequest {
+    private String cardNumber;
+    private BigDecimal amount;
+    private String currency;
+
+    public static FraudCheckRequest from(PaymentRequest request) {
+        FraudCheckRequest check = new FraudCheckRequest();
+        check.setCardNumber(request.getCardNumber());
+        check.setAmount(request.getAmount());
+        check.setCurrency(request.getCurrency());
+        return check;
+    }
+}
@@ -0,0 +1,29 @@
+package com.payu.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Resultado de un pago asociado a su Idempotency-Key. requestHash es un HMAC-SHA256 de la solicitud
+// para detectar claves reutilizadas con otro contenido sin guardar los datos de la tarjeta
+@Entity
+@Getter
+@Setter
+public class IdempotencyRecord {
+
+    @Id
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private Long transactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
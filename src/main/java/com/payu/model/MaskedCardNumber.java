@@ -0,0 +1,21 @@
+package com.payu.model;
+
+import com.fasterxml.jackson.databind.util.StdConverter;
+
+// Número de tarjeta tal como sale de la API: solo los últimos 4 dígitos
+public class MaskedCardNumber extends StdConverter<String, String> {
+
+    private static final int VISIBLE_DIGITS = 4;
+
+    public static String mask(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() <= VISIBLE_DIGITS) {
+            return cardNumber;
+        }
+        return "*".repeat(cardNumber.length() - VISIBLE_DIGITS) + cardNumber.substring(cardNumber.length() - VISIBLE_DIGITS);
+    }
+
+    @Override
+    public String convert(String cardNumber) {
+        return mask(cardNumber);
+    }
+}
@@ -0,0 +1,58 @@
+package com.payu.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Los montos internos son unidades menores de la moneda (centavos, yenes, fils) en un long, con la
+// escala de ISO 4217 de cada moneda. Los BigDecimal solo aparecen en los bordes: JSON, configuración
+// y servicios externos. Sumas, restas y comparaciones no crean objetos
+public final class Money {
+
+    private static final int DEFAULT_SCALE = 2;
+
+    // Los cifra una sola vez: Currency.getInstance lanza y captura una excepción por cada código desconocido
+    private static final Map<String, Integer> ISO_SCALES = Currency.getAvailableCurrencies().stream()
+            .collect(Collectors.toUnmodifiableMap(Currency::getCurrencyCode,
+                    currency -> currency.getDefaultFractionDigits() < 0 ? DEFAULT_SCALE : currency.getDefaultFractionDigits()));
+
+    // Mayor número de dígitos que cabe siempre en un long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private Money() {
+    }
+
+    public static boolean isIsoCurrency(String currency) {
+        return currency != null && ISO_SCALES.containsKey(currency);
+    }
+
+    // Decimales de la moneda según ISO 4217; dos para códigos desconocidos o sin decimales definidos
+    public static int scale(String currency) {
+        return currency == null ? DEFAULT_SCALE : ISO_SCALES.getOrDefault(currency, DEFAULT_SCALE);
+    }
+
+    // Comprueba sin crear objetos que toMinor aceptará el monto: con la escala y la precisión del
+    // BigDecimal basta. Solo los casos dudosos (ceros decimales de más, montos enormes) se convierten
+    public static void requireConvertible(BigDecimal amount, String currency) {
+        int scale = scale(currency);
+        if (amount.scale() > scale || amount.precision() - amount.scale() + scale > MAX_LONG_DIGITS) {
+            toMinor(amount, currency);
+        }
+    }
+
+    // Conversión exacta: un monto con más decimales de los que admite su moneda (100.001 USD, 10.5 JPY)
+    // se rechaza en vez de redondearse
+    public static long toMinor(BigDecimal amount, String currency) {
+        try {
+            return amount.movePointRight(scale(currency)).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("El monto " + amount.toPlainString()
+                    + " no es válido para la moneda " + currency + ".");
+        }
+    }
+
+    public static BigDecimal toDecimal(long minor, String currency) {
+        return BigDecimal.valueOf(minor, scale(currency));
+    }
+}
@@ -22,7 +22,9 @@ public class PaymentRequest {
     @DecimalMin("0.01")
     private BigDecimal amount;
 
+    // Código ISO 4217: la columna currency es CHAR(3)
     @NotBlank
+    @Pattern(regexp = "[A-Z]{3}", message = "La moneda debe ser un código ISO 4217.")
     private String currency;
 
     @NotNull
@@ -0,0 +1,64 @@
+package com.payu.model;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.Duration;
+
+// Comportamiento simulado de un servicio externo (bank, antifraud)
+@Data
+public class SimulationProfile {
+
+    @NotNull
+    private LatencyDistribution distribution = LatencyDistribution.FIXED;
+
+    // Valor fijo (FIXED), media (NORMAL) o escala mínima (PARETO)
+    @NotNull
+    private Duration latency = Duration.ZERO;
+
+    // Desviación estándar para NORMAL
+    @NotNull
+    private Duration latencyStdDev = Duration.ZERO;
+
+    // Forma de la cola para PARETO: cuanto menor, más pesada la cola
+    @DecimalMin("0.1")
+    private double paretoShape = 2.0;
+
+    @NotNull
+    private Duration maxLatency = Duration.ofSeconds(30);
+
+    // Proporción de solicitudes (0.0 - 1.0) que responden con errorStatus
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double errorRate = 0.0;
+
+    @Min(400)
+    @Max(599)
+    private int errorStatus = 503;
+
+    // Proporción de solicitudes que nunca responden
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double timeoutRate = 0.0;
+
+    // Si es mayor que cero, el cuerpo se envía en fragmentos de dripChunkBytes separados por este intervalo
+    @NotNull
+    private Duration dripInterval = Duration.ZERO;
+
+    @Min(1)
+    private int dripChunkBytes = 16;
+
+    // Máximo de solicitudes por segundo; el exceso responde 429. 0 = sin límite
+    @Min(0)
+    private int maxRequestsPerSecond = 0;
+
+    public enum LatencyDistribution {
+        FIXED,
+        NORMAL,
+        PARETO
+    }
+}
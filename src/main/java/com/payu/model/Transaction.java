@@ -1,36 +1,123 @@
 package com.payu.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.payu.repository.TimeOrderedId;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// El esquema y sus índices se definen en db/migration (Flyway); Hibernate solo lo valida
 @Entity
+@JsonPropertyOrder({"id", "cardNumber", "amount", "currency", "type", "status", "timestamp", "originalTransactionId",
+        "bankTransactionId", "refundedAmount"})
 @Getter
 @Setter
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
+    // Las respuestas y exportaciones no llevan el número completo
+    @JsonSerialize(converter = MaskedCardNumber.class)
+    @Column(nullable = false, length = 19)
     private String cardNumber;
-    private BigDecimal amount;
+
+    // Unidades menores de la moneda (Money); negativo en los reembolsos. La API lo expone en decimal
+    @JsonIgnore
+    @Column(nullable = false)
+    private long amountMinor;
+
+    // Código ISO 4217
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(nullable = false, length = 3)
     private String currency;
 
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 8)
     private TransactionType type;
 
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 8)
+    private TransactionStatus status = TransactionStatus.APPROVED;
+
+    @Column(nullable = false)
     private LocalDateTime timestamp;
 
     private Long originalTransactionId;
 
+    @Column(length = 64)
     private String bankTransactionId;
+
+    // Total reembolsado de una compra en unidades menores, mantenido con una actualización
+    // condicional por reembolso
+    @JsonIgnore
+    @Column(nullable = false)
+    private long refundedAmountMinor;
+
+    // Al leer JSON los montos pueden llegar antes que la moneda: se guardan aquí hasta conocerla
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BigDecimal unconvertedAmount;
+
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BigDecimal unconvertedRefundedAmount;
+
+    public BigDecimal getAmount() {
+        return Money.toDecimal(amountMinor, currency);
+    }
+
+    public BigDecimal getRefundedAmount() {
+        return Money.toDecimal(refundedAmountMinor, currency);
+    }
+
+    // Los setters en decimal existen para leer la API; el código usa los montos en unidades menores
+    public void setAmount(BigDecimal amount) {
+        unconvertedAmount = amount;
+        convertAmounts();
+    }
+
+    public void setRefundedAmount(BigDecimal refundedAmount) {
+        unconvertedRefundedAmount = refundedAmount;
+        convertAmounts();
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+        convertAmounts();
+    }
+
+    private void convertAmounts() {
+        if (currency == null) {
+            return;
+        }
+        if (unconvertedAmount != null) {
+            amountMinor = Money.toMinor(unconvertedAmount, currency);
+            unconvertedAmount = null;
+        }
+        if (unconvertedRefundedAmount != null) {
+            refundedAmountMinor = Money.toMinor(unconvertedRefundedAmount, currency);
+            unconvertedRefundedAmount = null;
+        }
+    }
 }
\ No newline at end of file
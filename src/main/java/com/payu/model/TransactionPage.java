@@ -0,0 +1,16 @@
+package com.payu.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Página de una consulta por keyset: nextCursor es el ID de la última transacción y se envía como
+// 'after' para pedir la siguiente página; es nulo en la última
+@Data
+@AllArgsConstructor
+public class TransactionPage {
+
+    private List<Transaction> items;
+    private Long nextCursor;
+}
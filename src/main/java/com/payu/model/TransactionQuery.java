@@ -0,0 +1,23 @@
+package com.payu.model;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// Filtros de consulta y exportación de transacciones; los campos nulos no filtran.
+// El rango de fechas incluye from y excluye to
+@Data
+public class TransactionQuery {
+
+    private String cardNumber;
+    private TransactionType type;
+    private TransactionStatus status;
+    private Long originalTransactionId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
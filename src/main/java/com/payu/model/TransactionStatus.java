@@ -0,0 +1,18 @@
+package com.payu.model;
+
+// Estado de una transacción. Las síncronas nacen en su estado final; con el modo asíncrono la compra
+// se guarda PENDING al aceptarse y pasa una sola vez a APPROVED, DECLINED o FRAUD
+public enum TransactionStatus {
+    PENDING,
+    APPROVED,
+    DECLINED,
+    FRAUD;
+
+    public boolean isFinal() {
+        return this != PENDING;
+    }
+
+    public boolean canTransitionTo(TransactionStatus next) {
+        return this == PENDING && next.isFinal();
+    }
+}
@@ -0,0 +1,12 @@
+package com.payu.model;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class VoidRequest {
+
+    @NotBlank
+    private String bankTransactionId;
+
+}
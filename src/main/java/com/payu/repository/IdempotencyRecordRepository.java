@@ -0,0 +1,7 @@
+package com.payu.repository;
+
+import com.payu.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+}
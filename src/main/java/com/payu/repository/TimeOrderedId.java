@@ -0,0 +1,16 @@
+package com.payu.repository;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// ID generado en la aplicación antes del INSERT: a diferencia de IDENTITY permite agrupar
+// inserciones en lotes JDBC y conocer el ID antes de persistir
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
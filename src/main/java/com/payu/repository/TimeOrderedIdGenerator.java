@@ -0,0 +1,46 @@
+package com.payu.repository;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// IDs crecientes de 53 bits: 41 bits de milisegundos desde 2024-01-01 y 12 bits de secuencia.
+// Caben en un número de JavaScript sin perder precisión; si se agotan los 4096 IDs de un
+// milisegundo se toman del siguiente
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final AtomicLong LAST_ID = new AtomicLong();
+
+    public static long nextId() {
+        long candidate = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        return LAST_ID.accumulateAndGet(candidate, (last, next) -> next > last ? next : last + 1);
+    }
+
+    // persist no pasa el ID ya asignado en currentValue: se lee de la propia entidad
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        Object assigned = currentValue != null
+                ? currentValue
+                : session.getEntityPersister(null, owner).getIdentifier(owner, session);
+        return assigned != null ? assigned : nextId();
+    }
+
+    // La escritura diferida asigna el ID al encolar para poder responder antes del INSERT
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
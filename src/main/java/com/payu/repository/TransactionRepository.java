@@ -1,13 +1,35 @@
 package com.payu.repository;
 
 import com.payu.model.Transaction;
+import com.payu.model.TransactionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-
-import java.math.BigDecimal;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.originalTransactionId = :originalTransactionId AND t.type = com.payu.model.TransactionType.REFUND")
-    BigDecimal sumRefundsByOriginalTransactionId(@Param("originalTransactionId") Long originalTransactionId);
+
+    // Reserva el monto solo si no supera el saldo disponible: devuelve 0 filas si lo excede
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.refundedAmountMinor = t.refundedAmountMinor + :amount WHERE t.id = :id AND t.type = com.payu.model.TransactionType.PURCHASE AND t.status = com.payu.model.TransactionStatus.APPROVED AND t.amountMinor - t.refundedAmountMinor >= :amount")
+    int reserveRefund(@Param("id") Long id, @Param("amount") long amount);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.refundedAmountMinor = t.refundedAmountMinor - :amount WHERE t.id = :id")
+    int releaseRefund(@Param("id") Long id, @Param("amount") long amount);
+
+    // Única transición de estado permitida (TransactionStatus): de PENDING a un estado final
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = :status, t.bankTransactionId = :bankTransactionId WHERE t.id = :id AND t.status = com.payu.model.TransactionStatus.PENDING")
+    int completePending(@Param("id") Long id, @Param("status") TransactionStatus status,
+                        @Param("bankTransactionId") String bankTransactionId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = com.payu.model.TransactionStatus.DECLINED WHERE t.status = com.payu.model.TransactionStatus.PENDING")
+    int declineAllPending();
 }
@@ -1,31 +1,114 @@
 package com.payu.service;
 
+import com.payu.config.AntiFraudBatchingProperties;
+import com.payu.config.HttpClientConfig;
+import com.payu.exception.DownstreamUnavailableException;
 import com.payu.model.AntiFraudResponse;
+import com.payu.model.FraudCheckRequest;
 import com.payu.model.PaymentRequest;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Service
 public class AntiFraudService {
 
+    private static final ParameterizedTypeReference<List<AntiFraudResponse>> FRAUD_RESPONSES = new ParameterizedTypeReference<>() {
+    };
+
     private final WebClient webClient;
 
-    public AntiFraudService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("http://localhost:8080")
-                .build();
+    private final DownstreamGuard guard;
+
+    private final FraudVerdictCache verdictCache;
+
+    private final PreScreeningService preScreeningService;
+
+    private final MicroBatcher<PaymentRequest, Boolean> batcher;
+
+    private final DistributionSummary batchSizes;
+
+    public AntiFraudService(@Qualifier("antiFraudWebClient") WebClient webClient, CircuitBreakerRegistry circuitBreakerRegistry,
+                            BulkheadRegistry bulkheadRegistry, RetryRegistry retryRegistry, FraudVerdictCache verdictCache,
+                            PreScreeningService preScreeningService, AntiFraudBatchingProperties batchingProperties,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.webClient = webClient;
+        this.verdictCache = verdictCache;
+        this.preScreeningService = preScreeningService;
+        this.guard = new DownstreamGuard(HttpClientConfig.ANTIFRAUD, "El servicio antifraude no está disponible.",
+                circuitBreakerRegistry, bulkheadRegistry, retryRegistry);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.batchSizes = registry == null ? null : DistributionSummary.builder("payu.antifraud.batch.size")
+                .description("Consultas antifraude enviadas en cada llamada por lotes")
+                .register(registry);
+        this.batcher = batchingProperties.isEnabled()
+                ? new MicroBatcher<>("payu-antifraud-batcher", batchingProperties.getMaxBatchSize(), batchingProperties.getMaxWait(),
+                        batchingProperties.getQueueCapacity(), this::checkBatch,
+                        cause -> new DownstreamUnavailableException("El servicio antifraude no está disponible.", cause))
+                : null;
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        if (batcher != null) {
+            batcher.close();
+        }
     }
 
     public boolean isFraudulent(PaymentRequest request) {
-        Mono<AntiFraudResponse> responseMono = webClient.post()
+        return Boolean.TRUE.equals(isFraudulentReactive(request).block());
+    }
+
+    public Mono<Boolean> isFraudulentReactive(PaymentRequest request) {
+        // Las reglas locales resuelven los casos claros sin salir a la red
+        PreScreeningService.Decision decision = preScreeningService.screen(request);
+        if (decision != PreScreeningService.Decision.REVIEW) {
+            return Mono.just(decision == PreScreeningService.Decision.REJECT);
+        }
+
+        Boolean cached = verdictCache.get(request);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        Mono<Boolean> verdict = batcher != null ? batcher.submit(request) : check(request);
+        return verdict.doOnNext(fraudulent -> verdictCache.put(request, fraudulent))
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<Boolean> check(PaymentRequest request) {
+        return webClient.post()
                 .uri("/api/mock/antifraud/check")
-                .bodyValue(request)
+                .bodyValue(FraudCheckRequest.from(request))
                 .retrieve()
-                .bodyToMono(AntiFraudResponse.class);
-
-        AntiFraudResponse response = responseMono.block();
+                .bodyToMono(AntiFraudResponse.class)
+                // La consulta antifraude no modifica estado: es seguro reintentarla
+                .transform(guard::idempotent)
+                .map(AntiFraudResponse::isFraudulent);
+    }
 
-        return response != null && response.isFraudulent();
+    // Un veredicto por consulta y en el mismo orden; el lote completo se reintenta si falla
+    private Mono<List<Boolean>> checkBatch(List<PaymentRequest> requests) {
+        if (batchSizes != null) {
+            batchSizes.record(requests.size());
+        }
+        return webClient.post()
+                .uri("/api/mock/antifraud/check/batch")
+                .bodyValue(requests.stream().map(FraudCheckRequest::from).toList())
+                .retrieve()
+                // El decodificador CBOR no lee por elementos: la lista se decodifica entera
+                .bodyToMono(FRAUD_RESPONSES)
+                .map(responses -> responses.stream().map(AntiFraudResponse::isFraudulent).toList())
+                .transform(guard::idempotent);
     }
-}
\ No newline at end of file
+}
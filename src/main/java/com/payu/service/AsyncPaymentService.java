@@ -0,0 +1,126 @@
+package com.payu.service;
+
+import com.payu.config.PaymentMetrics;
+import com.payu.config.PaymentProperties;
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.PaymentQueueFullException;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import com.payu.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Pagos asíncronos (payu.payment.async.enabled): submit guarda el pago PENDING y lo encola; un pool
+// fijo de workers consulta antifraude y banco, fija el estado final y notifica el webhook. Los
+// permisos del semáforo cubren los pagos en curso y en cola: sin permiso el pago se rechaza antes
+// de guardarse, de modo que la cola nunca crece sin límite cuando el banco se degrada
+@Slf4j
+@Service
+public class AsyncPaymentService {
+
+    private final boolean enabled;
+    private final PaymentService paymentService;
+    private final TransactionRepository transactionRepository;
+    private final WebhookNotifier webhookNotifier;
+    private final PaymentMetrics paymentMetrics;
+    private final Semaphore permits;
+    private final ExecutorService workers;
+
+    public AsyncPaymentService(PaymentProperties paymentProperties, PersistenceProperties persistenceProperties,
+                               PaymentService paymentService, TransactionRepository transactionRepository,
+                               WebhookNotifier webhookNotifier, PaymentMetrics paymentMetrics, MeterRegistry registry) {
+        PaymentProperties.Async properties = paymentProperties.getAsync();
+        this.enabled = properties.isEnabled();
+        // El cambio de estado es un UPDATE sobre la fila: el diario solo admite altas y con
+        // ack=ENQUEUED la fila puede no existir aún cuando el worker termina
+        if (enabled && (persistenceProperties.getMode() == PersistenceProperties.Mode.JOURNAL
+                || (persistenceProperties.getMode() == PersistenceProperties.Mode.WRITE_BEHIND
+                && persistenceProperties.getWriteBehind().getAck() == PersistenceProperties.Ack.ENQUEUED))) {
+            throw new IllegalStateException("Los pagos asíncronos requieren payu.persistence.mode=DIRECT o WRITE_BEHIND con ack=FLUSHED.");
+        }
+        this.paymentService = paymentService;
+        this.transactionRepository = transactionRepository;
+        this.webhookNotifier = webhookNotifier;
+        this.paymentMetrics = paymentMetrics;
+        this.permits = new Semaphore(properties.getWorkers() + properties.getQueueCapacity());
+        this.workers = enabled
+                ? new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(properties.getQueueCapacity()),
+                Thread.ofPlatform().name("payu-payment-worker-", 0).daemon().factory())
+                : null;
+        int capacity = properties.getWorkers() + properties.getQueueCapacity();
+        Gauge.builder("payu.payment.async.pending", permits, semaphore -> capacity - semaphore.availablePermits())
+                .description("Pagos asíncronos aceptados y aún sin estado final")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Los pagos pendientes de una ejecución anterior no pueden retomarse porque el CVV no se
+    // guarda: se rechazan y el cliente los repite. Sus reservas de límites ya no existen. Supone
+    // una sola instancia sobre la base: rechaza también los pendientes que otra esté procesando
+    @PostConstruct
+    void recover() {
+        if (!enabled) {
+            return;
+        }
+        int declined = transactionRepository.declineAllPending();
+        if (declined > 0) {
+            log.warn("{} pagos pendientes de la ejecución anterior marcados como DECLINED", declined);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Pagos asíncronos sin terminar al cerrar; quedarán DECLINED al arrancar");
+        }
+    }
+
+    public Transaction submit(PaymentRequest request) {
+        if (!enabled) {
+            throw new IllegalStateException("Los pagos asíncronos no están activos.");
+        }
+        if (!permits.tryAcquire()) {
+            throw new PaymentQueueFullException("Demasiados pagos en proceso. Inténtelo más tarde.");
+        }
+        try {
+            PaymentService.PendingPayment pending = paymentService.acceptPayment(request);
+            workers.execute(() -> complete(request, pending));
+            return pending.transaction();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void complete(PaymentRequest request, PaymentService.PendingPayment pending) {
+        try {
+            Transaction transaction = paymentService.completePayment(request, pending);
+            paymentMetrics.outcome(transaction.getStatus().name().toLowerCase(Locale.ROOT));
+            webhookNotifier.notify(transaction).subscribe();
+        } catch (RuntimeException e) {
+            // completePayment ya anuló la autorización si el banco la aprobó; sin estado final no se notifica
+            log.error("No se pudo completar el pago {}", pending.transaction().getId(), e);
+        } finally {
+            permits.release();
+        }
+    }
+}
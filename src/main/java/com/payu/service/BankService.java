@@ -1,9 +1,16 @@
 package com.payu.service;
 
+import com.payu.config.HttpClientConfig;
 import com.payu.exception.BankDeclinedException;
+import com.payu.model.BankAuthorizationRequest;
 import com.payu.model.BankResponse;
 import com.payu.model.PaymentRequest;
 import com.payu.model.RefundRequest;
+import com.payu.model.VoidRequest;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -14,41 +21,68 @@ public class BankService {
 
     private final WebClient webClient;
 
-    public BankService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("http://localhost:8080")
-                .build();
+    private final DownstreamGuard guard;
+
+    public BankService(@Qualifier("bankWebClient") WebClient webClient, CircuitBreakerRegistry circuitBreakerRegistry,
+                       BulkheadRegistry bulkheadRegistry, RetryRegistry retryRegistry) {
+        this.webClient = webClient;
+        this.guard = new DownstreamGuard(HttpClientConfig.BANK, "El servicio bancario no está disponible.",
+                circuitBreakerRegistry, bulkheadRegistry, retryRegistry);
     }
 
     public BankResponse processPayment(PaymentRequest request) {
-        Mono<BankResponse> responseMono = webClient.post()
-                .uri("/api/mock/bank/payments")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(BankResponse.class);
+        return processPaymentReactive(request).block();
+    }
 
-        BankResponse response = responseMono.block();
+    public BankResponse processRefund(RefundRequest request) {
+        return processRefundReactive(request).block();
+    }
 
-        if (response != null && "APPROVED".equals(response.getStatus())) {
-            return response;
-        } else {
-            throw new BankDeclinedException(response != null ? response.getMessage() : "Error al procesar el pago.");
-        }
+    public BankResponse voidPayment(String bankTransactionId) {
+        return voidPaymentReactive(bankTransactionId).block();
     }
 
-    public BankResponse processRefund(RefundRequest request) {
-        Mono<BankResponse> responseMono = webClient.post()
+    public Mono<BankResponse> processPaymentReactive(PaymentRequest request) {
+        return webClient.post()
+                .uri("/api/mock/bank/payments")
+                .bodyValue(BankAuthorizationRequest.from(request))
+                .retrieve()
+                .bodyToMono(BankResponse.class)
+                .transform(guard::nonIdempotent)
+                .switchIfEmpty(Mono.error(() -> new BankDeclinedException("Error al procesar el pago.")))
+                .flatMap(response -> expectStatus(response, "APPROVED"));
+    }
+
+    public Mono<BankResponse> processRefundReactive(RefundRequest request) {
+        return webClient.post()
                 .uri("/api/mock/bank/refunds")
                 .bodyValue(request)
                 .retrieve()
-                .bodyToMono(BankResponse.class);
+                .bodyToMono(BankResponse.class)
+                .transform(guard::nonIdempotent)
+                .switchIfEmpty(Mono.error(() -> new BankDeclinedException("Error al procesar el reembolso.")))
+                .flatMap(response -> expectStatus(response, "REFUNDED"));
+    }
 
-        BankResponse response = responseMono.block();
+    // Compensación de una autorización aprobada que no debe confirmarse. Anular dos veces la misma
+    // autorización no tiene efecto adicional, por lo que se reintenta.
+    public Mono<BankResponse> voidPaymentReactive(String bankTransactionId) {
+        VoidRequest request = new VoidRequest();
+        request.setBankTransactionId(bankTransactionId);
+        return webClient.post()
+                .uri("/api/mock/bank/voids")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(BankResponse.class)
+                .transform(guard::idempotent)
+                .switchIfEmpty(Mono.error(() -> new BankDeclinedException("Error al anular la autorización.")))
+                .flatMap(response -> expectStatus(response, "VOIDED"));
+    }
 
-        if (response != null && "REFUNDED".equals(response.getStatus())) {
-            return response;
-        } else {
-            throw new BankDeclinedException(response != null ? response.getMessage() : "Error al procesar el reembolso.");
+    private Mono<BankResponse> expectStatus(BankResponse response, String expectedStatus) {
+        if (expectedStatus.equals(response.getStatus())) {
+            return Mono.just(response);
         }
+        return Mono.error(new BankDeclinedException(response.getMessage()));
     }
-}
\ No newline at end of file
+}
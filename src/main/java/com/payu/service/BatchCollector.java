@@ -0,0 +1,40 @@
+package com.payu.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Bucle de recogida compartido por los hilos que vacían una cola en lotes (escritura diferida,
+// diario de transacciones y agrupador de solicitudes)
+final class BatchCollector {
+
+    // Espera acotada al primer elemento para que el hilo compruebe periódicamente si debe cerrarse
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private BatchCollector() {
+    }
+
+    // Añade a batch hasta maxSize elementos: los que ya están en la cola y los que llegan hasta maxWait
+    // después del primero. Sin ningún elemento en IDLE_POLL_MILLIS vuelve con batch vacío
+    static <E> void collect(BlockingQueue<E> queue, List<E> batch, int maxSize, Duration maxWait)
+            throws InterruptedException {
+        E first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (batch.size() < maxSize) {
+            if (queue.drainTo(batch, maxSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            E next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.payu.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.payu.config.PaymentMetrics;
+import com.payu.config.PaymentMetrics.Operation;
+import com.payu.config.PaymentMetrics.Stage;
+import com.payu.config.PaymentProperties;
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.BankDeclinedException;
+import com.payu.exception.BulkCapacityExceededException;
+import com.payu.exception.CardLimitExceededException;
+import com.payu.exception.DownstreamUnavailableException;
+import com.payu.exception.FraudException;
+import com.payu.model.BulkPaymentResult;
+import com.payu.model.BulkPaymentResult.Status;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import com.payu.repository.TransactionRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Carga masiva de pagos: valida cada pago, autoriza hasta bulk.concurrency pagos a la vez contra
+// antifraude y el banco, y guarda las transacciones aprobadas con saveAll en lotes JDBC de
+// bulk.batchSize. Los pagos siempre siguen el flujo reactivo, sea cual sea payu.payment.execution-mode,
+// y se guardan directamente aunque payu.persistence.mode sea WRITE_BEHIND: ya se insertan en lotes.
+// Con JOURNAL cada lote se escribe en el diario
+@Slf4j
+@Service
+public class BulkPaymentService {
+
+    private final PaymentService paymentService;
+    private final BankService bankService;
+    private final TransactionRepository transactionRepository;
+    private final TransactionJournal transactionJournal;
+    private final Scheduler persistenceScheduler;
+    private final PaymentMetrics paymentMetrics;
+    private final Validator validator;
+    private final ObjectReader reader;
+    private final PaymentProperties.Bulk properties;
+    private final boolean journal;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    public BulkPaymentService(PaymentService paymentService, BankService bankService, TransactionRepository transactionRepository,
+                              TransactionJournal transactionJournal, Scheduler persistenceScheduler,
+                              PaymentMetrics paymentMetrics, Validator validator, ObjectMapper objectMapper,
+                              PaymentProperties paymentProperties, PersistenceProperties persistenceProperties) {
+        this.paymentService = paymentService;
+        this.bankService = bankService;
+        this.transactionRepository = transactionRepository;
+        this.transactionJournal = transactionJournal;
+        this.persistenceScheduler = persistenceScheduler;
+        this.paymentMetrics = paymentMetrics;
+        this.validator = validator;
+        this.reader = objectMapper.readerFor(PaymentRequest.class);
+        this.properties = paymentProperties.getBulk();
+        this.journal = persistenceProperties.getMode() == PersistenceProperties.Mode.JOURNAL;
+    }
+
+    // Lee un arreglo JSON o NDJSON pago a pago, sin cargar el lote completo en memoria
+    public Flux<PaymentRequest> read(InputStream body) {
+        return Flux.using(() -> reader.<PaymentRequest>readValues(body),
+                        iterator -> Flux.fromIterable(() -> iterator),
+                        BulkPaymentService::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // El cupo de lotes simultáneos se toma al llamar y se libera cuando termina el Flux devuelto
+    public Flux<BulkPaymentResult> process(Flux<PaymentRequest> requests) {
+        if (activeRequests.incrementAndGet() > properties.getMaxConcurrentRequests()) {
+            activeRequests.decrementAndGet();
+            throw new BulkCapacityExceededException("Se alcanzó el máximo de cargas masivas en curso; reintente más tarde.");
+        }
+        // Se lee un pago de más para saber que el lote supera el máximo; el resto del cuerpo no se procesa
+        return requests.take(properties.getMaxItems() + 1L)
+                .index()
+                .flatMap(item -> authorize(item.getT1(), item.getT2()), properties.getConcurrency())
+                .bufferTimeout(properties.getBatchSize(), properties.getFlushInterval(), true)
+                .concatMap(this::persist)
+                .doOnNext(result -> paymentMetrics.outcome(outcome(result.getStatus())))
+                .doFinally(signal -> activeRequests.decrementAndGet());
+    }
+
+    private Mono<Pending> authorize(long index, PaymentRequest request) {
+        if (index >= properties.getMaxItems()) {
+            return Mono.just(Pending.failed(index, Status.REJECTED,
+                    "El lote supera el máximo de " + properties.getMaxItems() + " pagos."));
+        }
+        Set<ConstraintViolation<PaymentRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return Mono.just(Pending.failed(index, Status.INVALID, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "))));
+        }
+        return paymentService.authorizePaymentReactive(request)
+                .map(transaction -> new Pending(index, transaction, null))
+                .onErrorResume(error -> Mono.just(new Pending(index, null, failure(index, error))));
+    }
+
+    private Flux<BulkPaymentResult> persist(List<Pending> batch) {
+        List<Transaction> transactions = batch.stream()
+                .map(Pending::transaction)
+                .filter(Objects::nonNull)
+                .toList();
+        if (transactions.isEmpty()) {
+            return Flux.fromIterable(batch).map(Pending::result);
+        }
+        if (journal) {
+            // El diario confirma en sus propios lotes: cada transacción se resuelve por separado
+            return Flux.fromIterable(batch).flatMapSequential(this::append);
+        }
+        Mono<?> save = Mono.fromCallable(() -> transactionRepository.saveAll(transactions)).subscribeOn(persistenceScheduler);
+        return paymentMetrics.record(Operation.PAYMENT, Stage.PERSIST, save)
+                .thenMany(Flux.fromIterable(batch).map(Pending::result))
+                .onErrorResume(error -> {
+                    // saveAll es una sola transacción: no se guardó ninguna
+                    log.error("No se pudo guardar un lote de {} transacciones", transactions.size(), error);
+                    return Flux.fromIterable(batch).flatMapSequential(this::unsaved);
+                });
+    }
+
+    private Mono<BulkPaymentResult> append(Pending pending) {
+        if (pending.transaction() == null) {
+            return Mono.just(pending.result());
+        }
+        Mono<Transaction> append = Mono.fromFuture(() -> transactionJournal.append(pending.transaction()), true)
+                .subscribeOn(persistenceScheduler);
+        return paymentMetrics.record(Operation.PAYMENT, Stage.PERSIST, append)
+                .map(transaction -> pending.result())
+                .onErrorResume(error -> {
+                    log.error("No se pudo escribir en el diario el pago {} de la carga masiva", pending.index(), error);
+                    return unsaved(pending);
+                });
+    }
+
+    // Un pago aprobado que no llegó a guardarse no puede quedar autorizado en el banco sin transacción
+    private Mono<BulkPaymentResult> unsaved(Pending pending) {
+        if (pending.transaction() == null) {
+            return Mono.just(pending.result());
+        }
+        String bankTransactionId = pending.transaction().getBankTransactionId();
+        return bankService.voidPaymentReactive(bankTransactionId)
+                .onErrorResume(error -> {
+                    // La autorización queda retenida en el banco: debe conciliarse manualmente
+                    log.error("No se pudo anular la autorización bancaria {}", bankTransactionId, error);
+                    return Mono.empty();
+                })
+                .thenReturn(BulkPaymentResult.failed(pending.index(), Status.ERROR, "No se pudo guardar la transacción."));
+    }
+
+    private static BulkPaymentResult failure(long index, Throwable error) {
+        Status status = switch (error) {
+            case FraudException e -> Status.FRAUD;
+            case BankDeclinedException e -> Status.DECLINED;
+            case CardLimitExceededException e -> Status.DECLINED;
+            case DownstreamUnavailableException e -> Status.UNAVAILABLE;
+            case IllegalArgumentException e -> Status.INVALID;
+            default -> Status.ERROR;
+        };
+        if (status == Status.ERROR) {
+            log.warn("Error inesperado en el pago {} de la carga masiva", index, error);
+            return BulkPaymentResult.failed(index, status, "Error al procesar el pago.");
+        }
+        return BulkPaymentResult.failed(index, status, error.getMessage());
+    }
+
+    // Los mismos resultados que cuenta GlobalExceptionHandler para los pagos individuales
+    private static String outcome(Status status) {
+        return switch (status) {
+            case APPROVED -> "approved";
+            case DECLINED -> "declined";
+            case FRAUD -> "fraud";
+            case INVALID -> "invalid";
+            case UNAVAILABLE -> "downstream_unavailable";
+            case REJECTED -> "bulk_rejected";
+            case ERROR -> "error";
+        };
+    }
+
+    private static void close(MappingIterator<?> iterator) {
+        try {
+            iterator.close();
+        } catch (IOException e) {
+            log.debug("No se pudo cerrar el cuerpo de la carga masiva", e);
+        }
+    }
+
+    // Pago autorizado pendiente de guardar, o su resultado si no llegó a autorizarse
+    private record Pending(long index, Transaction transaction, BulkPaymentResult failure) {
+
+        static Pending failed(long index, Status status, String message) {
+            return new Pending(index, null, BulkPaymentResult.failed(index, status, message));
+        }
+
+        BulkPaymentResult result() {
+            return failure != null ? failure : BulkPaymentResult.approved(index, transaction);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.payu.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.payu.config.FraudVerdictCacheProperties;
+import com.payu.config.FraudVerdictCacheProperties.KeyField;
+import com.payu.model.PaymentRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Set;
+
+// Caffeine (W-TinyLFU) con TTL distinto para veredictos limpios y fraudulentos. La tarjeta entra
+// en la huella como CardHash para no mantener números de tarjeta en memoria. Cada veredicto guarda el
+// importe evaluado: uno limpio solo vale para importes iguales o menores y uno fraudulento para
+// iguales o mayores, porque el tramo de importe puede cruzar un umbral de la evaluación remota
+@Component
+@ConditionalOnProperty(prefix = "payu.antifraud.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CaffeineFraudVerdictCache implements FraudVerdictCache {
+
+    private static final char SEPARATOR = '|';
+
+    private final Set<KeyField> keyFields;
+    private final BigDecimal amountBucket;
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+    private final Cache<String, Verdict> verdicts;
+
+    public CaffeineFraudVerdictCache(FraudVerdictCacheProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.keyFields = properties.getKeyFields();
+        this.amountBucket = properties.getAmountBucket();
+        long cleanTtl = properties.getCleanTtl().toNanos();
+        long fraudTtl = properties.getFraudTtl().toNanos();
+        this.verdicts = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfter(new Expiry<String, Verdict>() {
+                    @Override
+                    public long expireAfterCreate(String key, Verdict verdict, long currentTime) {
+                        return verdict.fraudulent() ? fraudTtl : cleanTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Verdict verdict, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, verdict, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Verdict verdict, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats(() -> statsCounter)
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, verdicts, "payu.antifraud.verdicts"));
+    }
+
+    @Override
+    public Boolean get(PaymentRequest request) {
+        // asMap().get no cuenta aciertos: un veredicto que no cubre el importe es un fallo
+        Verdict verdict = verdicts.asMap().get(key(request));
+        if (verdict == null || !verdict.covers(request.getAmount())) {
+            statsCounter.recordMisses(1);
+            return null;
+        }
+        statsCounter.recordHits(1);
+        return verdict.fraudulent();
+    }
+
+    @Override
+    public void put(PaymentRequest request, boolean fraudulent) {
+        verdicts.put(key(request), new Verdict(fraudulent, request.getAmount()));
+    }
+
+    @Override
+    public void invalidateCard(String cardNumber) {
+        if (!keyFields.contains(KeyField.CARD)) {
+            invalidateAll();
+            return;
+        }
+        String prefix = Long.toString(CardHash.of(cardNumber)) + SEPARATOR;
+        verdicts.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @Override
+    public void invalidateAll() {
+        verdicts.invalidateAll();
+    }
+
+    @Override
+    public Stats stats() {
+        CacheStats stats = verdicts.stats();
+        return new Stats(true, verdicts.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+
+    // La tarjeta va primero para poder invalidar por prefijo
+    private String key(PaymentRequest request) {
+        StringBuilder key = new StringBuilder(96);
+        if (keyFields.contains(KeyField.CARD)) {
+            key.append(CardHash.of(request.getCardNumber())).append(SEPARATOR);
+        }
+        if (keyFields.contains(KeyField.CARD_HOLDER)) {
+            key.append(request.getCardHolderName()).append(SEPARATOR);
+        }
+        if (keyFields.contains(KeyField.AMOUNT_BUCKET)) {
+            key.append(request.getAmount().divide(amountBucket, 0, RoundingMode.FLOOR)).append(SEPARATOR);
+        }
+        if (keyFields.contains(KeyField.CURRENCY)) {
+            key.append(request.getCurrency());
+        }
+        return key.toString();
+    }
+
+    private record Verdict(boolean fraudulent, BigDecimal amount) {
+
+        boolean covers(BigDecimal requested) {
+            int comparison = requested.compareTo(amount);
+            return fraudulent ? comparison >= 0 : comparison <= 0;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.payu.service;
+
+import java.security.SecureRandom;
+
+// Huella de 64 bits de una tarjeta (finalizador de MurmurHash3 sobre los dígitos) para las
+// estructuras en memoria que no deben guardar el número de tarjeta. La semilla aleatoria de cada
+// ejecución impide recalcular las huellas fuera del proceso: sin ella bastaría recorrer los
+// números de tarjeta posibles, que son pocos
+final class CardHash {
+
+    private static final long SEED = new SecureRandom().nextLong();
+
+    private CardHash() {
+    }
+
+    static long of(String cardNumber) {
+        return mix(fold(SEED, cardNumber));
+    }
+
+    // Tarjeta y moneda en una sola huella
+    static long of(String cardNumber, String currency) {
+        return mix(fold(fold(SEED, cardNumber), currency));
+    }
+
+    private static long fold(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = h * 31 + value.charAt(i);
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,486 @@
+package com.payu.service;
+
+import com.payu.config.CardLedgerProperties;
+import com.payu.exception.CardLimitExceededException;
+import com.payu.model.Money;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionQuery;
+import com.payu.model.TransactionStatus;
+import com.payu.model.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Libro en memoria del gasto por tarjeta y moneda: pagos y monto (en unidades menores de la moneda)
+// de la última hora y del último día, en ventanas deslizantes por tramos. Las tarjetas se reparten
+// en particiones con su propio bloqueo; cada partición es una tabla de direccionamiento abierto
+// sobre arrays primitivos, sin objetos por tarjeta, y solo guarda la huella de la tarjeta.
+// Los límites se comprueban en O(1) sin consultar la base de datos; al arrancar se carga el último
+// día desde las transacciones guardadas, después de reproducir el diario si está activo
+@Slf4j
+@Service
+@DependsOn("journalProjection")
+public class CardLedger {
+
+    // Ventana horaria en 6 tramos de 10 minutos y diaria en 24 tramos de una hora
+    private static final int HOUR_SLOTS = 6;
+    private static final long HOUR_SLOT_MILLIS = Duration.ofMinutes(10).toMillis();
+    private static final int DAY_SLOTS = 24;
+    private static final long DAY_SLOT_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int SLOTS = HOUR_SLOTS + DAY_SLOTS;
+
+    private static final int INITIAL_ENTRIES = 16;
+    private static final int EVICTION_SAMPLES = 8;
+
+    private enum Rule {
+        HOURLY_COUNT("Se superó el número de pagos por hora permitido para la tarjeta."),
+        DAILY_COUNT("Se superó el número de pagos diarios permitido para la tarjeta."),
+        HOURLY_AMOUNT("Se superó el monto por hora permitido para la tarjeta."),
+        DAILY_AMOUNT("Se superó el monto diario permitido para la tarjeta.");
+
+        private final String message;
+
+        Rule(String message) {
+            this.message = message;
+        }
+    }
+
+    private final CardLedgerProperties properties;
+    private final TransactionQueryService transactionQueryService;
+    private final Shard[] shards;
+    private final int shardMask;
+    private final Map<String, Limits> limits = new HashMap<>();
+    private final Map<Rule, Counter> rejections = new EnumMap<>(Rule.class);
+
+    public CardLedger(CardLedgerProperties properties, TransactionQueryService transactionQueryService,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+        if (Integer.bitCount(properties.getShards()) != 1) {
+            throw new IllegalArgumentException("El número de particiones del libro de tarjetas debe ser potencia de dos.");
+        }
+        this.properties = properties;
+        this.transactionQueryService = transactionQueryService;
+        this.shards = new Shard[properties.getShards()];
+        this.shardMask = shards.length - 1;
+        int capacity = Math.max(1, (properties.getMaxCards() + shards.length - 1) / shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(capacity);
+        }
+        properties.getLimits().forEach((currency, limit) -> limits.put(currency, Limits.of(limit, currency)));
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("payu.ledger.cards", this, CardLedger::size)
+                .description("Tarjetas y monedas retenidas en el libro en memoria")
+                .register(registry);
+        FunctionCounter.builder("payu.ledger.evictions", this, CardLedger::evictions)
+                .description("Tarjetas descartadas por inactividad al llenarse una partición")
+                .register(registry);
+        for (Rule rule : Rule.values()) {
+            rejections.put(rule, Counter.builder("payu.ledger.rejections")
+                    .description("Pagos rechazados por superar un límite de la tarjeta")
+                    .tag("limit", rule.name())
+                    .register(registry));
+        }
+    }
+
+    // Carga las compras aprobadas del último día, descontando lo ya reembolsado de cada una
+    @PostConstruct
+    public void warmUp() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        TransactionQuery query = new TransactionQuery();
+        query.setType(TransactionType.PURCHASE);
+        query.setStatus(TransactionStatus.APPROVED);
+        query.setFrom(LocalDateTime.now().minusDays(1));
+        long[] loaded = {0};
+        transactionQueryService.export(query, transaction -> {
+            apply(transaction.getCardNumber(), transaction.getCurrency(),
+                    transaction.getAmountMinor() - transaction.getRefundedAmountMinor(), 1, epochMillis(transaction.getTimestamp()), true);
+            loaded[0]++;
+        });
+        log.info("Libro de tarjetas cargado con {} compras del último día en {} ms",
+                loaded[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public long reserve(Transaction purchase) {
+        return reserve(purchase, System.currentTimeMillis());
+    }
+
+    // Comprueba los límites de la tarjeta con el pago incluido y, si caben, lo cuenta de inmediato
+    // para que dos pagos concurrentes no puedan superarlos entre ambos. Devuelve el instante de la
+    // reserva, necesario para liberarla si el pago no se completa
+    public long reserve(Transaction purchase, long nowMillis) {
+        if (!properties.isEnabled()) {
+            return nowMillis;
+        }
+        String currency = purchase.getCurrency();
+        long amount = purchase.getAmountMinor();
+        long key = CardHash.of(purchase.getCardNumber(), currency);
+        Limits cardLimits = limits.get(currency);
+        Shard shard = shard(key);
+        Rule exceeded;
+        shard.lock.lock();
+        try {
+            exceeded = shard.reserve(key, nowMillis, amount, cardLimits);
+        } finally {
+            shard.lock.unlock();
+        }
+        if (exceeded != null) {
+            rejections.get(exceeded).increment();
+            throw new CardLimitExceededException(exceeded.message);
+        }
+        return nowMillis;
+    }
+
+    // Descuenta una reserva cuyo pago fue rechazado o falló; si su tramo ya salió de la ventana
+    // o la tarjeta fue descartada no queda nada que descontar
+    public void release(Transaction purchase, long reservedAtMillis) {
+        if (properties.isEnabled()) {
+            apply(purchase.getCardNumber(), purchase.getCurrency(), -purchase.getAmountMinor(), -1, reservedAtMillis, false);
+        }
+    }
+
+    // Un reembolso reduce el gasto en el tramo de la compra original, sin restar el pago del conteo
+    public void refund(Transaction originalTransaction, long amountMinor) {
+        if (properties.isEnabled() && originalTransaction.getTimestamp() != null) {
+            apply(originalTransaction.getCardNumber(), originalTransaction.getCurrency(), -amountMinor, 0,
+                    epochMillis(originalTransaction.getTimestamp()), false);
+        }
+    }
+
+    public Usage usage(String cardNumber, String currency) {
+        return usage(cardNumber, currency, System.currentTimeMillis());
+    }
+
+    public Usage usage(String cardNumber, String currency, long nowMillis) {
+        long key = CardHash.of(cardNumber, currency);
+        Shard shard = shard(key);
+        long[] totals = new long[4];
+        shard.lock.lock();
+        try {
+            shard.usage(key, nowMillis, totals);
+        } finally {
+            shard.lock.unlock();
+        }
+        return new Usage(totals[0], Money.toDecimal(totals[1], currency), totals[2], Money.toDecimal(totals[3], currency));
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.size;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private long evictions() {
+        long evictions = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                evictions += shard.evictions;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return evictions;
+    }
+
+    private void apply(String cardNumber, String currency, long amountMinor, int count, long atMillis, boolean create) {
+        long key = CardHash.of(cardNumber, currency);
+        Shard shard = shard(key);
+        shard.lock.lock();
+        try {
+            shard.apply(key, atMillis, amountMinor, count, create);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private Shard shard(long key) {
+        return shards[(int) (key >>> 32) & shardMask];
+    }
+
+    private static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public record Usage(long hourlyCount, BigDecimal hourlyAmount, long dailyCount, BigDecimal dailyAmount) {
+    }
+
+    // Límites de una moneda en unidades menores; Long.MAX_VALUE no limita
+    private record Limits(long hourlyCount, long dailyCount, long hourlyAmount, long dailyAmount) {
+
+        static Limits of(CardLedgerProperties.Limit limit, String currency) {
+            return new Limits(
+                    limit.getHourlyCount() == null ? Long.MAX_VALUE : limit.getHourlyCount(),
+                    limit.getDailyCount() == null ? Long.MAX_VALUE : limit.getDailyCount(),
+                    limit.getHourlyAmount() == null ? Long.MAX_VALUE : Money.toMinor(limit.getHourlyAmount(), currency),
+                    limit.getDailyAmount() == null ? Long.MAX_VALUE : Money.toMinor(limit.getDailyAmount(), currency));
+        }
+
+        Rule exceeded(long hourlyCount, long dailyCount, long hourlyAmount, long dailyAmount) {
+            if (hourlyCount > this.hourlyCount) {
+                return Rule.HOURLY_COUNT;
+            }
+            if (dailyCount > this.dailyCount) {
+                return Rule.DAILY_COUNT;
+            }
+            if (hourlyAmount > this.hourlyAmount) {
+                return Rule.HOURLY_AMOUNT;
+            }
+            return dailyAmount > this.dailyAmount ? Rule.DAILY_AMOUNT : null;
+        }
+    }
+
+    // Partición del libro; se usa siempre bajo su propio bloqueo (ReentrantLock y no synchronized
+    // para no fijar los hilos virtuales a su portador mientras esperan). Las tarjetas ocupan entradas
+    // densas (0..size) y una tabla de sondeo lineal traduce la huella a la entrada. Cada entrada
+    // tiene SLOTS tramos: los HOUR_SLOTS primeros forman la ventana horaria y el resto la diaria
+    private static final class Shard {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private int size;
+        private long evictions;
+
+        private long[] keys;
+        private long[] lastSeen;
+        private long[] hourHeads;
+        private long[] dayHeads;
+        private long[] amounts;
+        private int[] counts;
+
+        private long[] tableKeys;
+        // Entrada + 1; 0 indica una posición libre
+        private int[] tableEntries;
+        private int tableMask;
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+            allocate(Math.min(capacity, INITIAL_ENTRIES));
+        }
+
+        Rule reserve(long key, long now, long amount, Limits limits) {
+            int entry = find(key);
+            if (limits != null) {
+                long hourlyCount = 0;
+                long dailyCount = 0;
+                long hourlyAmount = 0;
+                long dailyAmount = 0;
+                if (entry >= 0) {
+                    advance(entry, now);
+                    int base = entry * SLOTS;
+                    for (int i = base; i < base + HOUR_SLOTS; i++) {
+                        hourlyCount += counts[i];
+                        hourlyAmount += amounts[i];
+                    }
+                    for (int i = base + HOUR_SLOTS; i < base + SLOTS; i++) {
+                        dailyCount += counts[i];
+                        dailyAmount += amounts[i];
+                    }
+                }
+                Rule exceeded = limits.exceeded(hourlyCount + 1, dailyCount + 1, hourlyAmount + amount, dailyAmount + amount);
+                if (exceeded != null) {
+                    return exceeded;
+                }
+            }
+            if (entry < 0) {
+                entry = insert(key, now);
+            }
+            add(entry, now, amount, 1);
+            return null;
+        }
+
+        void apply(long key, long at, long amount, int count, boolean create) {
+            int entry = find(key);
+            if (entry < 0) {
+                if (!create) {
+                    return;
+                }
+                entry = insert(key, at);
+            }
+            add(entry, at, amount, count);
+        }
+
+        void usage(long key, long now, long[] totals) {
+            int entry = find(key);
+            if (entry < 0) {
+                return;
+            }
+            advance(entry, now);
+            int base = entry * SLOTS;
+            for (int i = base; i < base + HOUR_SLOTS; i++) {
+                totals[0] += counts[i];
+                totals[1] += amounts[i];
+            }
+            for (int i = base + HOUR_SLOTS; i < base + SLOTS; i++) {
+                totals[2] += counts[i];
+                totals[3] += amounts[i];
+            }
+        }
+
+        private void add(int entry, long at, long amount, int count) {
+            lastSeen[entry] = Math.max(lastSeen[entry], at);
+            addToRing(entry, at / HOUR_SLOT_MILLIS, amount, count, 0, HOUR_SLOTS, hourHeads);
+            addToRing(entry, at / DAY_SLOT_MILLIS, amount, count, HOUR_SLOTS, DAY_SLOTS, dayHeads);
+        }
+
+        private void advance(int entry, long now) {
+            advanceRing(entry, now / HOUR_SLOT_MILLIS, 0, HOUR_SLOTS, hourHeads);
+            advanceRing(entry, now / DAY_SLOT_MILLIS, HOUR_SLOTS, DAY_SLOTS, dayHeads);
+        }
+
+        // Un instante anterior a la cabeza se suma a su tramo si este sigue dentro de la ventana
+        private void addToRing(int entry, long epoch, long amount, int count, int offset, int slots, long[] heads) {
+            advanceRing(entry, epoch, offset, slots, heads);
+            if (epoch <= heads[entry] - slots) {
+                return;
+            }
+            int i = entry * SLOTS + offset + (int) (epoch % slots);
+            amounts[i] += amount;
+            counts[i] += count;
+        }
+
+        // Vacía los tramos que la ventana deja atrás al avanzar hasta 'epoch'
+        private void advanceRing(int entry, long epoch, int offset, int slots, long[] heads) {
+            long head = heads[entry];
+            if (epoch <= head) {
+                return;
+            }
+            int base = entry * SLOTS + offset;
+            for (long e = Math.max(head + 1, epoch - slots + 1); e <= epoch; e++) {
+                int i = base + (int) (e % slots);
+                amounts[i] = 0;
+                counts[i] = 0;
+            }
+            heads[entry] = epoch;
+        }
+
+        private int find(long key) {
+            for (int i = (int) key & tableMask; tableEntries[i] != 0; i = (i + 1) & tableMask) {
+                if (tableKeys[i] == key) {
+                    return tableEntries[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        private int insert(long key, long at) {
+            if (size == capacity) {
+                evict();
+            } else if (size == keys.length) {
+                allocate(Math.min(capacity, keys.length * 2));
+            }
+            int entry = size++;
+            keys[entry] = key;
+            lastSeen[entry] = at;
+            // Cabezas anteriores a cualquier instante: el primer avance vacía los tramos heredados
+            hourHeads[entry] = -1;
+            dayHeads[entry] = -1;
+            place(key, entry);
+            return entry;
+        }
+
+        // Descarta la tarjeta con actividad más antigua de una muestra aleatoria y mueve la última
+        // entrada a su hueco para mantener las entradas densas
+        private void evict() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int victim = random.nextInt(size);
+            for (int sample = 1; sample < EVICTION_SAMPLES; sample++) {
+                int candidate = random.nextInt(size);
+                if (lastSeen[candidate] < lastSeen[victim]) {
+                    victim = candidate;
+                }
+            }
+            unplace(keys[victim]);
+            evictions++;
+            int last = --size;
+            if (victim != last) {
+                keys[victim] = keys[last];
+                lastSeen[victim] = lastSeen[last];
+                hourHeads[victim] = hourHeads[last];
+                dayHeads[victim] = dayHeads[last];
+                System.arraycopy(amounts, last * SLOTS, amounts, victim * SLOTS, SLOTS);
+                System.arraycopy(counts, last * SLOTS, counts, victim * SLOTS, SLOTS);
+                int i = (int) keys[victim] & tableMask;
+                while (tableKeys[i] != keys[victim] || tableEntries[i] == 0) {
+                    i = (i + 1) & tableMask;
+                }
+                tableEntries[i] = victim + 1;
+            }
+        }
+
+        private void place(long key, int entry) {
+            int i = (int) key & tableMask;
+            while (tableEntries[i] != 0) {
+                i = (i + 1) & tableMask;
+            }
+            tableKeys[i] = key;
+            tableEntries[i] = entry + 1;
+        }
+
+        // Borrado con desplazamiento hacia atrás: ninguna clave queda separada de su posición
+        // inicial por un hueco, así que no hacen falta marcas de borrado
+        private void unplace(long key) {
+            int hole = (int) key & tableMask;
+            while (tableKeys[hole] != key || tableEntries[hole] == 0) {
+                hole = (hole + 1) & tableMask;
+            }
+            tableEntries[hole] = 0;
+            for (int i = (hole + 1) & tableMask; tableEntries[i] != 0; i = (i + 1) & tableMask) {
+                int home = (int) tableKeys[i] & tableMask;
+                boolean reachable = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+                if (!reachable) {
+                    tableKeys[hole] = tableKeys[i];
+                    tableEntries[hole] = tableEntries[i];
+                    tableEntries[i] = 0;
+                    hole = i;
+                }
+            }
+        }
+
+        // Crece las entradas hasta 'entries' y reconstruye la tabla con ocupación máxima del 50 %
+        private void allocate(int entries) {
+            keys = keys == null ? new long[entries] : Arrays.copyOf(keys, entries);
+            lastSeen = lastSeen == null ? new long[entries] : Arrays.copyOf(lastSeen, entries);
+            hourHeads = hourHeads == null ? new long[entries] : Arrays.copyOf(hourHeads, entries);
+            dayHeads = dayHeads == null ? new long[entries] : Arrays.copyOf(dayHeads, entries);
+            amounts = amounts == null ? new long[entries * SLOTS] : Arrays.copyOf(amounts, entries * SLOTS);
+            counts = counts == null ? new int[entries * SLOTS] : Arrays.copyOf(counts, entries * SLOTS);
+
+            int tableSize = Integer.highestOneBit(Math.max(2, entries * 2 - 1)) << 1;
+            tableKeys = new long[tableSize];
+            tableEntries = new int[tableSize];
+            tableMask = tableSize - 1;
+            for (int entry = 0; entry < size; entry++) {
+                place(keys[entry], entry);
+            }
+        }
+    }
+}
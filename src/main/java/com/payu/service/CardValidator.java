@@ -0,0 +1,94 @@
+package com.payu.service;
+
+import com.payu.model.CardBrand;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+// Validación de datos de tarjeta sin asignaciones en el camino crítico: recorre los caracteres
+// directamente, sin substring, parseInt ni expresiones regulares
+@Component
+public class CardValidator {
+
+    private static final int MIN_LENGTH = 12;
+    private static final int MAX_LENGTH = 19;
+    private static final int BIN_LENGTH = 6;
+
+    // Valor de cada dígito al duplicarlo en el algoritmo de Luhn
+    private static final int[] DOUBLED = {0, 2, 4, 6, 8, 1, 3, 5, 7, 9};
+
+    private volatile CurrentMonth currentMonth = CurrentMonth.now();
+
+    public boolean isValidCardNumber(String cardNumber) {
+        return brandOf(cardNumber) != null;
+    }
+
+    // Devuelve la marca de una tarjeta válida (Luhn y longitud de su marca) o null si es inválida
+    public CardBrand brandOf(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        int length = cardNumber.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return null;
+        }
+        int sum = 0;
+        int bin = 0;
+        int parity = length & 1;
+        for (int i = 0; i < length; i++) {
+            int digit = cardNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            if (i < BIN_LENGTH) {
+                bin = bin * 10 + digit;
+            }
+            // Se duplican los dígitos en posición par contando desde la derecha
+            sum += ((i & 1) == parity) ? DOUBLED[digit] : digit;
+        }
+        if (sum % 10 != 0) {
+            return null;
+        }
+        CardBrand brand = CardBrand.fromBin(bin);
+        return brand.acceptsLength(length) ? brand : null;
+    }
+
+    public boolean isValidCvv(String cvv) {
+        if (cvv == null) {
+            return false;
+        }
+        int length = cvv.length();
+        if (length < 3 || length > 4) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = cvv.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isExpired(YearMonth expirationDate) {
+        CurrentMonth month = currentMonth;
+        if (System.currentTimeMillis() >= month.validUntilMillis()) {
+            month = CurrentMonth.now();
+            currentMonth = month;
+        }
+        return expirationDate.isBefore(month.value());
+    }
+
+    // Mes en curso cacheado hasta el inicio del mes siguiente para no recalcularlo en cada pago
+    private record CurrentMonth(YearMonth value, long validUntilMillis) {
+
+        static CurrentMonth now() {
+            ZoneId zone = ZoneId.systemDefault();
+            YearMonth month = YearMonth.now(zone);
+            ZonedDateTime nextMonth = month.plusMonths(1).atDay(1).atStartOfDay(zone);
+            return new CurrentMonth(month, nextMonth.toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.payu.service;
+
+import com.payu.config.DownstreamClientError;
+import com.payu.exception.DownstreamUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+
+// Circuit breaker, bulkhead y reintentos de un servicio externo, configurados en
+// resilience4j.*.instances.<nombre>. Los errores de disponibilidad se traducen a
+// DownstreamUnavailableException; los errores de negocio (p. ej. un rechazo del banco) y las respuestas
+// 4xx (DownstreamClientError) pasan intactos.
+class DownstreamGuard {
+
+    private static final DownstreamClientError CLIENT_ERROR = new DownstreamClientError();
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Retry retry;
+    private final String unavailableMessage;
+
+    DownstreamGuard(String name, String unavailableMessage, CircuitBreakerRegistry circuitBreakerRegistry,
+                    BulkheadRegistry bulkheadRegistry, RetryRegistry retryRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+        this.bulkhead = bulkheadRegistry.bulkhead(name);
+        this.retry = retryRegistry.retry(name);
+        this.unavailableMessage = unavailableMessage;
+    }
+
+    // Solo las operaciones idempotentes se reintentan: repetir una autorización podría cobrar dos veces
+    <T> Mono<T> idempotent(Mono<T> call) {
+        return protect(call)
+                .transformDeferred(RetryOperator.of(retry))
+                .onErrorMap(this::isUnavailable, this::unavailable);
+    }
+
+    <T> Mono<T> nonIdempotent(Mono<T> call) {
+        return protect(call)
+                .onErrorMap(this::isUnavailable, this::unavailable);
+    }
+
+    private <T> Mono<T> protect(Mono<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private boolean isUnavailable(Throwable error) {
+        return error instanceof CallNotPermittedException
+                || error instanceof BulkheadFullException
+                || error instanceof WebClientException && !CLIENT_ERROR.test(error)
+                || error instanceof TimeoutException;
+    }
+
+    private Throwable unavailable(Throwable error) {
+        return new DownstreamUnavailableException(unavailableMessage, error);
+    }
+}
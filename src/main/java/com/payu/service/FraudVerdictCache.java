@@ -0,0 +1,22 @@
+package com.payu.service;
+
+import com.payu.model.PaymentRequest;
+
+// Caché de veredictos delante de la consulta antifraude remota. Solo se guardan veredictos
+// obtenidos del servicio, nunca errores
+public interface FraudVerdictCache {
+
+    // null si no hay veredicto vigente para la huella de la solicitud
+    Boolean get(PaymentRequest request);
+
+    void put(PaymentRequest request, boolean fraudulent);
+
+    void invalidateCard(String cardNumber);
+
+    void invalidateAll();
+
+    Stats stats();
+
+    record Stats(boolean enabled, long size, long hits, long misses, double hitRate, long evictions) {
+    }
+}
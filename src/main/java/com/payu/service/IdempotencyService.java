@@ -0,0 +1,233 @@
+package com.payu.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.payu.config.IdempotencyProperties;
+import com.payu.exception.BankDeclinedException;
+import com.payu.exception.FraudException;
+import com.payu.exception.IdempotencyKeyConflictException;
+import com.payu.exception.PaymentNotConfirmedException;
+import com.payu.exception.TransactionNotFoundException;
+import com.payu.model.IdempotencyRecord;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import com.payu.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Deduplicación de pagos por Idempotency-Key en dos niveles: caché en memoria acotada con TTL y
+// la tabla IdempotencyRecord. Las solicitudes concurrentes con la misma clave esperan a la
+// ejecución en curso en lugar de repetirla. La tabla solo guarda los pagos completados; los
+// rechazos definitivos (fraude, banco) se recuerdan en memoria. Un pago aprobado por el banco
+// nunca libera la clave mientras pueda quedar registrado; el resto de errores la liberan y el
+// cliente puede reintentar
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionQueryService transactionQueryService;
+    private final Scheduler persistenceScheduler;
+    private final Duration ttl;
+    private final SecretKeySpec hashKey;
+    private final Cache<String, Completed> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              TransactionQueryService transactionQueryService,
+                              Scheduler persistenceScheduler,
+                              IdempotencyProperties properties,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionQueryService = transactionQueryService;
+        this.persistenceScheduler = persistenceScheduler;
+        this.ttl = properties.getTtl();
+        this.hashKey = hashKey(properties.getHashSecret());
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, completed, "payu.idempotency");
+            Gauge.builder("payu.idempotency.inflight", inFlight, Map::size)
+                    .description("Claves con una ejecución en curso")
+                    .register(registry);
+        });
+    }
+
+    public Mono<Transaction> execute(String key, PaymentRequest request, Supplier<Mono<Transaction>> payment) {
+        return Mono.defer(() -> {
+            if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("La clave de idempotencia es inválida.");
+            }
+            String requestHash = fingerprint(request);
+
+            Completed cached = completed.getIfPresent(key);
+            if (cached != null) {
+                checkSameRequest(cached.requestHash(), requestHash);
+                return cached.failure() == null ? Mono.just(cached.transaction()) : Mono.error(cached.failure());
+            }
+
+            InFlight execution = new InFlight(requestHash, new CompletableFuture<>());
+            InFlight current = inFlight.putIfAbsent(key, execution);
+            if (current != null) {
+                checkSameRequest(current.requestHash(), requestHash);
+                // Cancelar una espera no debe cancelar la ejecución de la que dependen otras solicitudes
+                return Mono.fromFuture(current.result(), true);
+            }
+            return executeOnce(key, execution, payment);
+        });
+    }
+
+    // La ejecución se suscribe una sola vez, desacoplada de quien la inició: si ese cliente cancela,
+    // el cobro en curso termina igualmente y los reintentos con la misma clave esperan su resultado
+    private Mono<Transaction> executeOnce(String key, InFlight execution, Supplier<Mono<Transaction>> payment) {
+        return Mono.deferContextual(context -> {
+            Mono.fromCallable(() -> storedTransaction(key, execution.requestHash()))
+                    .subscribeOn(persistenceScheduler)
+                    .flatMap(stored -> stored.map(Mono::just).orElseGet(() -> payment.get()
+                            .flatMap(transaction -> Mono.fromCallable(() -> store(key, execution.requestHash(), transaction))
+                                    .subscribeOn(persistenceScheduler))))
+                    .contextWrite(context)
+                    .subscribe(transaction -> {
+                        completed.put(key, new Completed(execution.requestHash(), transaction, null));
+                        inFlight.remove(key, execution);
+                        execution.result().complete(transaction);
+                    }, error -> {
+                        settle(key, execution, error);
+                        execution.result().completeExceptionally(error);
+                    });
+            return Mono.fromFuture(execution.result(), true);
+        });
+    }
+
+    private void settle(String key, InFlight execution, Throwable error) {
+        if (error instanceof PaymentNotConfirmedException unconfirmed && unconfirmed.getSaved() != null) {
+            // Aprobado pero sin confirmar: la clave sigue ocupada y los reintentos esperan al guardado
+            CompletableFuture<Transaction> saved = unconfirmed.getSaved();
+            InFlight pending = new InFlight(execution.requestHash(), new CompletableFuture<>());
+            inFlight.replace(key, execution, pending);
+            saved.whenComplete((transaction, saveError) -> {
+                if (saveError != null) {
+                    // El guardado falló y la autorización se anuló: repetir el pago ya no lo duplica
+                    inFlight.remove(key, pending);
+                    pending.result().completeExceptionally(saveError);
+                    return;
+                }
+                persistenceScheduler.schedule(() -> {
+                    store(key, execution.requestHash(), transaction);
+                    completed.put(key, new Completed(execution.requestHash(), transaction, null));
+                    inFlight.remove(key, pending);
+                    pending.result().complete(transaction);
+                });
+            });
+            return;
+        }
+        if (error instanceof FraudException || error instanceof BankDeclinedException
+                || error instanceof PaymentNotConfirmedException) {
+            // Resultado definitivo: repetirlo consultaría de nuevo antifraude y el banco, o cobraría
+            // otra vez una autorización que no pudo anularse
+            completed.put(key, new Completed(execution.requestHash(), null, (RuntimeException) error));
+        }
+        inFlight.remove(key, execution);
+    }
+
+    // Segundo nivel: claves expulsadas de la memoria o registradas antes de un reinicio
+    private Optional<Transaction> storedTransaction(String key, String requestHash) {
+        Optional<IdempotencyRecord> recordOpt = idempotencyRecordRepository.findById(key);
+        if (!recordOpt.isPresent()) {
+            return Optional.empty();
+        }
+        IdempotencyRecord record = recordOpt.get();
+        if (record.getCreatedAt().isBefore(LocalDateTime.now().minus(ttl))) {
+            idempotencyRecordRepository.delete(record);
+            return Optional.empty();
+        }
+        checkSameRequest(record.getRequestHash(), requestHash);
+        // Con escritura diferida o JOURNAL la fila puede estar aún en camino. Sin la transacción no se
+        // puede reproducir el resultado, pero repetir el pago lo duplicaría
+        Transaction transaction = transactionQueryService.findSaved(record.getTransactionId())
+                .orElseThrow(() -> new TransactionNotFoundException("La transacción asociada a la clave de idempotencia no existe."));
+        return Optional.of(transaction);
+    }
+
+    private Transaction store(String key, String requestHash, Transaction transaction) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdempotencyKey(key);
+        record.setRequestHash(requestHash);
+        record.setTransactionId(transaction.getId());
+        record.setCreatedAt(LocalDateTime.now());
+        try {
+            idempotencyRecordRepository.save(record);
+        } catch (RuntimeException e) {
+            // El pago ya se realizó: se responde igualmente y la clave queda al menos en memoria
+            log.error("No se pudo registrar la clave de idempotencia {} de la transacción {}", key, transaction.getId(), e);
+        }
+        return transaction;
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyConflictException("La clave de idempotencia ya se usó con una solicitud distinta.");
+        }
+    }
+
+    // HMAC-SHA256 con secreto propio: un hash sin clave de la tarjeta guardado en request_hash se
+    // podría invertir por fuerza bruta. El CVV y la fecha de expiración no forman parte de la huella
+    String fingerprint(PaymentRequest request) {
+        String canonical = String.join("\u001F",
+                request.getCardNumber(),
+                request.getCardHolderName(),
+                request.getAmount() == null ? null : request.getAmount().stripTrailingZeros().toPlainString(),
+                request.getCurrency());
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(hashKey);
+            return HexFormat.of().formatHex(mac.doFinal(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SecretKeySpec hashKey(String secret) {
+        if (secret != null && !secret.isBlank()) {
+            return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HASH_ALGORITHM);
+        }
+        // Sin secreto configurado las huellas guardadas antes de un reinicio dejan de coincidir y
+        // sus claves responden 422 hasta que vence ttl
+        log.warn("payu.idempotency.hash-secret no está configurado: se usa un secreto aleatorio de esta ejecución");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return new SecretKeySpec(random, HASH_ALGORITHM);
+    }
+
+    private record Completed(String requestHash, Transaction transaction, RuntimeException failure) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<Transaction> result) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.payu.service;
+
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+// Formato binario de un registro del diario:
+//   int longitud del contenido | int CRC32C del contenido | contenido
+// y el contenido:
+//   byte tipo | long id | long segundos + int nanos de la fecha | long transacción original (0 = ninguna)
+//   long monto en unidades menores de la moneda | 3 bytes de moneda
+//   byte longitud + bytes de la tarjeta | short longitud (-1 = nulo) + bytes UTF-8 del ID bancario
+// El monto reembolsado de las compras no se guarda: se deriva de los reembolsos al reproducir
+final class JournalCodec {
+
+    static final int RECORD_HEADER_BYTES = 8;
+    // Ningún registro válido se acerca a este tamaño; uno mayor indica un registro dañado
+    static final int MAX_RECORD_BYTES = 1024;
+
+    private static final byte PURCHASE = 1;
+    private static final byte REFUND = 2;
+    private static final int CURRENCY_BYTES = 3;
+
+    private JournalCodec() {
+    }
+
+    // La moneda ocupa siempre 3 bytes: un código de otra longitud desplazaría el resto del registro
+    // con un CRC válido y el diario dejaría de poder leerse al arrancar
+    static void requireEncodable(Transaction transaction) {
+        String currency = transaction.getCurrency();
+        if (currency == null || currency.length() != CURRENCY_BYTES) {
+            throw new IllegalArgumentException("La moneda " + currency + " no es un código ISO 4217.");
+        }
+        for (int i = 0; i < CURRENCY_BYTES; i++) {
+            if (currency.charAt(i) < 'A' || currency.charAt(i) > 'Z') {
+                throw new IllegalArgumentException("La moneda " + currency + " no es un código ISO 4217.");
+            }
+        }
+    }
+
+    private static int size(Transaction transaction, byte[] bankTransactionId) {
+        return RECORD_HEADER_BYTES + 1 + 8 + 8 + 4 + 8 + 8 + CURRENCY_BYTES + 1 + transaction.getCardNumber().length()
+                + 2 + (bankTransactionId == null ? 0 : bankTransactionId.length);
+    }
+
+    static int encodedSize(Transaction transaction) {
+        byte[] bankTransactionId = transaction.getBankTransactionId() == null
+                ? null
+                : transaction.getBankTransactionId().getBytes(StandardCharsets.UTF_8);
+        return size(transaction, bankTransactionId);
+    }
+
+    // Escribe el registro en la posición actual del buffer, que debe tener sitio para encodedSize(...)
+    static void encode(Transaction transaction, ByteBuffer buffer) {
+        requireEncodable(transaction);
+        byte[] bankTransactionId = transaction.getBankTransactionId() == null
+                ? null
+                : transaction.getBankTransactionId().getBytes(StandardCharsets.UTF_8);
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_BYTES);
+
+        LocalDateTime timestamp = transaction.getTimestamp();
+        buffer.put(transaction.getType() == TransactionType.PURCHASE ? PURCHASE : REFUND)
+                .putLong(transaction.getId())
+                .putLong(timestamp.toEpochSecond(ZoneOffset.UTC))
+                .putInt(timestamp.getNano())
+                .putLong(transaction.getOriginalTransactionId() == null ? 0 : transaction.getOriginalTransactionId())
+                .putLong(transaction.getAmountMinor());
+        putAscii(buffer, transaction.getCurrency());
+        buffer.put((byte) transaction.getCardNumber().length());
+        putAscii(buffer, transaction.getCardNumber());
+        if (bankTransactionId == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) bankTransactionId.length).put(bankTransactionId);
+        }
+
+        int length = buffer.position() - start - RECORD_HEADER_BYTES;
+        buffer.putInt(start, length).putInt(start + 4, crc(buffer, start + RECORD_HEADER_BYTES, length));
+    }
+
+    // Lee el registro en la posición actual y avanza tras él. Devuelve null sin avanzar si el
+    // registro está incompleto o dañado: lo que sigue no es fiable
+    static Transaction decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + 4);
+        if (length <= 0 || length > MAX_RECORD_BYTES || buffer.remaining() < RECORD_HEADER_BYTES + length
+                || crc(buffer, start + RECORD_HEADER_BYTES, length) != checksum) {
+            return null;
+        }
+
+        ByteBuffer record = buffer.slice(start + RECORD_HEADER_BYTES, length);
+        Transaction transaction = new Transaction();
+        transaction.setType(record.get() == PURCHASE ? TransactionType.PURCHASE : TransactionType.REFUND);
+        transaction.setId(record.getLong());
+        transaction.setTimestamp(LocalDateTime.ofEpochSecond(record.getLong(), record.getInt(), ZoneOffset.UTC));
+        long originalTransactionId = record.getLong();
+        transaction.setOriginalTransactionId(originalTransactionId == 0 ? null : originalTransactionId);
+        transaction.setAmountMinor(record.getLong());
+        transaction.setCurrency(getAscii(record, CURRENCY_BYTES));
+        transaction.setCardNumber(getAscii(record, record.get()));
+        short bankLength = record.getShort();
+        if (bankLength >= 0) {
+            byte[] bankTransactionId = new byte[bankLength];
+            record.get(bankTransactionId);
+            transaction.setBankTransactionId(new String(bankTransactionId, StandardCharsets.UTF_8));
+        }
+
+        buffer.position(start + RECORD_HEADER_BYTES + length);
+        return transaction;
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static void putAscii(ByteBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private static String getAscii(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,241 @@
+package com.payu.service;
+
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.PersistenceOverloadedException;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Con payu.persistence.mode=JOURNAL la tabla de transacciones es una proyección del diario. Cada
+// lote escrito en el diario pasa a la escritura diferida y, cuando todos los lotes anteriores están
+// en la base, su posición se guarda en ella como punto de control (journal_projection_checkpoint).
+// Al arrancar se reproduce el diario desde el punto de control y se insertan las transacciones que
+// la base no tiene, de modo que un lote que no llegó a la base se recupera. Con la base vacía, como
+// H2 en memoria tras un reinicio, el punto de control vuelve al principio con ella
+@Slf4j
+@Component
+public class JournalProjection {
+
+    private static final int REPLAY_BATCH_SIZE = 500;
+
+    private final boolean enabled;
+    private final Duration ackTimeout;
+    private final TransactionJournal transactionJournal;
+    private final TransactionWriteBehind transactionWriteBehind;
+    private final TransactionTemplate transactionTemplate;
+    // Transacciones confirmadas en el diario que aún no están en la base
+    private final Map<Long, CompletableFuture<Transaction>> unprojected = new ConcurrentHashMap<>();
+    // Lotes proyectándose, en el orden del diario
+    private final Deque<Projecting> projecting = new ArrayDeque<>();
+    private boolean stalled;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public JournalProjection(PersistenceProperties persistenceProperties, TransactionJournal transactionJournal,
+                             TransactionWriteBehind transactionWriteBehind, PlatformTransactionManager transactionManager) {
+        this.enabled = persistenceProperties.getMode() == PersistenceProperties.Mode.JOURNAL;
+        this.ackTimeout = persistenceProperties.getAckTimeout();
+        this.transactionJournal = transactionJournal;
+        this.transactionWriteBehind = transactionWriteBehind;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Replay replay = new Replay();
+        long read = transactionJournal.replay(readCheckpoint(), replay::accept);
+        replay.flush();
+        log.info("Diario reproducido: {} transacciones leídas y {} insertadas en {} ms",
+                read, replay.inserted, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        transactionJournal.start(this::project);
+    }
+
+    // Se cierra aquí y no solo en el propio diario para que lo pendiente llegue a la escritura
+    // diferida antes de que esta se detenga
+    @PreDestroy
+    void stop() throws InterruptedException {
+        transactionJournal.close();
+    }
+
+    // Un reembolso inmediato puede llegar antes que la compra a la base: si la compra se está
+    // proyectando se espera a que termine, como mucho payu.persistence.ack-timeout
+    public boolean awaitProjected(long id) {
+        CompletableFuture<Transaction> projected = unprojected.get(id);
+        if (projected == null) {
+            return false;
+        }
+        try {
+            projected.get(ackTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    // Lo llama el hilo del diario antes de confirmar el lote, así que una transacción confirmada ya
+    // figura en unprojected si aún no está en la base
+    private void project(List<Transaction> transactions, TransactionJournal.Position position) {
+        List<CompletableFuture<Transaction>> batch = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            CompletableFuture<Transaction> projected;
+            try {
+                projected = transactionWriteBehind.enqueueUntilFlushed(transaction);
+            } catch (PersistenceOverloadedException e) {
+                projected = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<Transaction> registered = projected;
+            unprojected.put(transaction.getId(), registered);
+            registered.whenComplete((saved, error) -> unprojected.remove(transaction.getId(), registered));
+            batch.add(registered);
+        }
+        Projecting entry = new Projecting(position, CompletableFuture.allOf(batch.toArray(CompletableFuture[]::new)));
+        synchronized (projecting) {
+            if (stalled) {
+                return;
+            }
+            projecting.add(entry);
+        }
+        entry.done().whenComplete((ignored, error) -> advance());
+    }
+
+    // El punto de control solo avanza sobre lotes consecutivos ya guardados. Tras un lote fallido
+    // se detiene: al arrancar se reproduce desde él y se insertan las transacciones que falten
+    private void advance() {
+        TransactionJournal.Position checkpoint = null;
+        synchronized (projecting) {
+            while (!projecting.isEmpty() && projecting.peek().done().isDone()) {
+                Projecting head = projecting.poll();
+                if (head.done().isCompletedExceptionally()) {
+                    stalled = true;
+                    projecting.clear();
+                    log.error("Un lote del diario no llegó a la base; se insertará al reproducir el diario desde {}",
+                            checkpoint != null ? checkpoint : "el último punto de control");
+                    break;
+                }
+                checkpoint = head.position();
+            }
+            if (checkpoint != null) {
+                writeCheckpoint(checkpoint);
+            }
+        }
+    }
+
+    private TransactionJournal.Position readCheckpoint() {
+        Object[] row = transactionTemplate.execute(status -> (Object[]) entityManager
+                .createNativeQuery("SELECT segment, segment_offset FROM journal_projection_checkpoint WHERE id = 1")
+                .getSingleResult());
+        return new TransactionJournal.Position(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    private void writeCheckpoint(TransactionJournal.Position checkpoint) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> updateCheckpoint(checkpoint));
+        } catch (RuntimeException e) {
+            // Un punto de control atrasado solo hace que se revisen más registros al arrancar
+            log.warn("No se pudo guardar el punto de control de la proyección del diario", e);
+        }
+    }
+
+    private void updateCheckpoint(TransactionJournal.Position checkpoint) {
+        entityManager.createNativeQuery("UPDATE journal_projection_checkpoint SET segment = :segment, segment_offset = :offset WHERE id = 1")
+                .setParameter("segment", checkpoint.segment())
+                .setParameter("offset", checkpoint.offset())
+                .executeUpdate();
+    }
+
+    private record Projecting(TransactionJournal.Position position, CompletableFuture<Void> done) {
+    }
+
+    // Inserta en lotes lo que la base aún no tiene. El monto reembolsado de las compras insertadas
+    // aquí se reconstruye con sus reembolsos; las compras que la base ya tenía los reservaron al hacerse
+    private final class Replay {
+
+        private final List<Transaction> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+        private final Set<Long> insertedPurchases = new HashSet<>();
+        private TransactionJournal.Position position;
+        private long inserted;
+
+        void accept(Transaction transaction, TransactionJournal.Position position) {
+            batch.add(transaction);
+            this.position = position;
+            if (batch.size() == REPLAY_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> existing = new HashSet<>(entityManager
+                        .createQuery("SELECT t.id FROM Transaction t WHERE t.id IN :ids", Long.class)
+                        .setParameter("ids", batch.stream().map(Transaction::getId).toList())
+                        .getResultList());
+                Map<Long, Transaction> batchPurchases = new HashMap<>();
+                Map<Long, Long> refundsOfFlushedPurchases = new HashMap<>();
+                for (Transaction transaction : batch) {
+                    if (existing.contains(transaction.getId())) {
+                        continue;
+                    }
+                    if (transaction.getType() == TransactionType.PURCHASE) {
+                        batchPurchases.put(transaction.getId(), transaction);
+                    } else if (insertedPurchases.contains(transaction.getOriginalTransactionId())
+                            || batchPurchases.containsKey(transaction.getOriginalTransactionId())) {
+                        long refunded = -transaction.getAmountMinor();
+                        Transaction original = batchPurchases.get(transaction.getOriginalTransactionId());
+                        if (original != null) {
+                            original.setRefundedAmountMinor(original.getRefundedAmountMinor() + refunded);
+                        } else {
+                            refundsOfFlushedPurchases.merge(transaction.getOriginalTransactionId(), refunded, Long::sum);
+                        }
+                    }
+                    entityManager.persist(transaction);
+                    inserted++;
+                }
+                entityManager.flush();
+                // En la misma transacción que el lote
+                updateCheckpoint(position);
+                refundsOfFlushedPurchases.forEach((id, amount) -> entityManager
+                        .createQuery("UPDATE Transaction t SET t.refundedAmountMinor = t.refundedAmountMinor + :amount WHERE t.id = :id")
+                        .setParameter("amount", amount)
+                        .setParameter("id", id)
+                        .executeUpdate());
+                entityManager.clear();
+                insertedPurchases.addAll(batchPurchases.keySet());
+            });
+            batch.clear();
+        }
+    }
+}
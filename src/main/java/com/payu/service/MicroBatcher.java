@@ -0,0 +1,129 @@
+package com.payu.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Agrupa solicitudes concurrentes: un único hilo reúne hasta maxBatchSize elementos o espera maxWait
+// desde el primero, envía el lote con una sola llamada asíncrona y reparte cada resultado a quien lo
+// pidió. La llamada debe devolver un resultado por elemento y en el mismo orden. Con la cola llena o
+// el agrupador cerrado la solicitud falla con la excepción que construye unavailable
+@Slf4j
+public class MicroBatcher<T, R> {
+
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final BlockingQueue<Pending<T, R>> queue;
+    private final Function<List<T>, Mono<List<R>>> call;
+    private final Function<Throwable, ? extends RuntimeException> unavailable;
+    private final Thread collector;
+    private volatile boolean running = true;
+
+    public MicroBatcher(String name, int maxBatchSize, Duration maxWait, int queueCapacity,
+                        Function<List<T>, Mono<List<R>>> call, Function<Throwable, ? extends RuntimeException> unavailable) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.call = call;
+        this.unavailable = unavailable;
+        this.collector = Thread.ofPlatform().name(name).daemon().start(this::collectLoop);
+    }
+
+    // La solicitud se encola al suscribirse; con la cola llena falla de inmediato en lugar de esperar
+    public Mono<R> submit(T item) {
+        return Mono.defer(() -> {
+            if (!running) {
+                return Mono.error(unavailable.apply(closed()));
+            }
+            Pending<T, R> pending = new Pending<>(item, new CompletableFuture<>());
+            if (!queue.offer(pending)) {
+                return Mono.error(unavailable.apply(new IllegalStateException("La cola de solicitudes está llena.")));
+            }
+            // close pudo vaciar la cola entre la comprobación y offer: nadie enviaría esta solicitud
+            if (!running && queue.remove(pending)) {
+                return Mono.error(unavailable.apply(closed()));
+            }
+            return Mono.fromFuture(pending.result(), true);
+        });
+    }
+
+    // Los lotes ya enviados terminan por su cuenta; los que quedan en la cola se envían antes de
+    // salir y, si el hilo no termina a tiempo, fallan
+    public void close() throws InterruptedException {
+        running = false;
+        collector.join(TimeUnit.SECONDS.toMillis(5));
+        if (collector.isAlive()) {
+            collector.interrupt();
+            collector.join(TimeUnit.SECONDS.toMillis(1));
+        }
+        abandonQueued();
+    }
+
+    private void collectLoop() {
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                BatchCollector.collect(queue, batch, maxBatchSize, maxWait);
+                if (!batch.isEmpty()) {
+                    send(List.copyOf(batch));
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(batch, unavailable.apply(closed()));
+        } finally {
+            abandonQueued();
+        }
+    }
+
+    private void abandonQueued() {
+        List<Pending<T, R>> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            fail(left, unavailable.apply(closed()));
+        }
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("El agrupador de solicitudes está cerrado.");
+    }
+
+    private void send(List<Pending<T, R>> batch) {
+        List<T> items = batch.stream().map(Pending::item).toList();
+        Mono<List<R>> results;
+        try {
+            results = call.apply(items);
+        } catch (RuntimeException e) {
+            results = Mono.error(e);
+        }
+        results.switchIfEmpty(Mono.error(() -> new IllegalStateException("El lote terminó sin resultados.")))
+                .subscribe(values -> complete(batch, values), error -> fail(batch, error));
+    }
+
+    private static <T, R> void complete(List<Pending<T, R>> batch, List<R> values) {
+        if (values.size() != batch.size()) {
+            fail(batch, new IllegalStateException("Se esperaban " + batch.size() + " resultados y se recibieron " + values.size() + "."));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(values.get(i));
+        }
+    }
+
+    private static <T, R> void fail(List<Pending<T, R>> batch, Throwable error) {
+        log.debug("Falló un lote de {} solicitudes", batch.size(), error);
+        batch.forEach(pending -> pending.result().completeExceptionally(error));
+    }
+
+    private record Pending<T, R>(T item, CompletableFuture<R> result) {
+    }
+}
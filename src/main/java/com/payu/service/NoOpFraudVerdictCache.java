@@ -0,0 +1,32 @@
+package com.payu.service;
+
+import com.payu.model.PaymentRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(prefix = "payu.antifraud.cache", name = "enabled", havingValue = "false")
+public class NoOpFraudVerdictCache implements FraudVerdictCache {
+
+    @Override
+    public Boolean get(PaymentRequest request) {
+        return null;
+    }
+
+    @Override
+    public void put(PaymentRequest request, boolean fraudulent) {
+    }
+
+    @Override
+    public void invalidateCard(String cardNumber) {
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+
+    @Override
+    public Stats stats() {
+        return new Stats(false, 0, 0, 0, 0.0, 0);
+    }
+}
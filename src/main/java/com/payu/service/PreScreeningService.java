@@ -0,0 +1,146 @@
+package com.payu.service;
+
+import com.payu.config.PreScreeningProperties;
+import com.payu.model.PaymentRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Reglas locales previas a la consulta antifraude remota: lista de BIN bloqueados, umbrales de
+// monto por moneda y velocidad de intentos por tarjeta. Cualquier REJECT rechaza, todas en ACCEPT
+// aceptan y el resto se revisa en remoto
+@Service
+public class PreScreeningService {
+
+    public enum Decision {
+        ACCEPT,
+        REJECT,
+        REVIEW
+    }
+
+    private static final int MIN_BIN_LENGTH = 6;
+    private static final int MAX_BIN_LENGTH = 8;
+
+    private final PreScreeningProperties properties;
+    private final VelocitySketch velocity;
+    // BIN bloqueados por longitud (índice 0 = 6 dígitos), ordenados para búsqueda binaria
+    private final int[][] blockedBins;
+    private final Timer evaluationTimer;
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+
+    public PreScreeningService(PreScreeningProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        PreScreeningProperties.Velocity velocityProperties = properties.getVelocity();
+        this.velocity = new VelocitySketch(velocityProperties.getWindow().toMillis(), velocityProperties.getSlots(),
+                velocityProperties.getSketchDepth(), velocityProperties.getSketchWidth());
+        this.blockedBins = blockedBins(properties);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.evaluationTimer = Timer.builder("payu.antifraud.prescreening.evaluation")
+                .description("Tiempo de evaluación de las reglas locales")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        for (Decision decision : Decision.values()) {
+            decisions.put(decision, Counter.builder("payu.antifraud.prescreening.decisions")
+                    .description("Decisiones de las reglas locales; ACCEPT y REJECT evitan la consulta remota")
+                    .tag("decision", decision.name())
+                    .register(registry));
+        }
+    }
+
+    public Decision screen(PaymentRequest request) {
+        if (!properties.isEnabled()) {
+            return Decision.REVIEW;
+        }
+        long start = System.nanoTime();
+        Decision decision = combine(combine(binRule(request), thresholdRule(request)), velocityRule(request));
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        decisions.get(decision).increment();
+        return decision;
+    }
+
+    public Stats stats() {
+        double accepted = decisions.get(Decision.ACCEPT).count();
+        double rejected = decisions.get(Decision.REJECT).count();
+        double reviewed = decisions.get(Decision.REVIEW).count();
+        double total = accepted + rejected + reviewed;
+        return new Stats(properties.isEnabled(), (long) accepted, (long) rejected, (long) reviewed,
+                total == 0 ? 0.0 : (accepted + rejected) / total,
+                evaluationTimer.mean(TimeUnit.MICROSECONDS), evaluationTimer.max(TimeUnit.MICROSECONDS));
+    }
+
+    private Decision binRule(PaymentRequest request) {
+        String cardNumber = request.getCardNumber();
+        int prefix = 0;
+        for (int length = 1; length <= MAX_BIN_LENGTH && length <= cardNumber.length(); length++) {
+            prefix = prefix * 10 + (cardNumber.charAt(length - 1) - '0');
+            if (length >= MIN_BIN_LENGTH && Arrays.binarySearch(blockedBins[length - MIN_BIN_LENGTH], prefix) >= 0) {
+                return Decision.REJECT;
+            }
+        }
+        return Decision.ACCEPT;
+    }
+
+    private Decision thresholdRule(PaymentRequest request) {
+        PreScreeningProperties.Threshold threshold = properties.getThresholds().get(request.getCurrency());
+        if (threshold == null) {
+            return Decision.REVIEW;
+        }
+        if (threshold.getRejectAbove() != null && request.getAmount().compareTo(threshold.getRejectAbove()) > 0) {
+            return Decision.REJECT;
+        }
+        if (threshold.getAcceptBelow() != null && request.getAmount().compareTo(threshold.getAcceptBelow()) < 0) {
+            return Decision.ACCEPT;
+        }
+        return Decision.REVIEW;
+    }
+
+    private Decision velocityRule(PaymentRequest request) {
+        PreScreeningProperties.Velocity velocityProperties = properties.getVelocity();
+        int attempts = velocity.incrementAndCount(CardHash.of(request.getCardNumber()), System.currentTimeMillis());
+        if (attempts > velocityProperties.getRejectAbove()) {
+            return Decision.REJECT;
+        }
+        return attempts > velocityProperties.getReviewAbove() ? Decision.REVIEW : Decision.ACCEPT;
+    }
+
+    private static Decision combine(Decision a, Decision b) {
+        if (a == Decision.REJECT || b == Decision.REJECT) {
+            return Decision.REJECT;
+        }
+        return a == Decision.ACCEPT && b == Decision.ACCEPT ? Decision.ACCEPT : Decision.REVIEW;
+    }
+
+    private static int[][] blockedBins(PreScreeningProperties properties) {
+        properties.getBlockedBins().stream()
+                .map(String::trim)
+                .filter(bin -> bin.length() < MIN_BIN_LENGTH || bin.length() > MAX_BIN_LENGTH || !bin.chars().allMatch(Character::isDigit))
+                .findFirst()
+                .ifPresent(bin -> {
+                    throw new IllegalArgumentException("BIN bloqueado inválido: " + bin);
+                });
+        int[][] bins = new int[MAX_BIN_LENGTH - MIN_BIN_LENGTH + 1][];
+        for (int length = MIN_BIN_LENGTH; length <= MAX_BIN_LENGTH; length++) {
+            int binLength = length;
+            bins[length - MIN_BIN_LENGTH] = properties.getBlockedBins().stream()
+                    .map(String::trim)
+                    .filter(bin -> bin.length() == binLength)
+                    .mapToInt(Integer::parseInt)
+                    .sorted()
+                    .toArray();
+        }
+        return bins;
+    }
+
+    public record Stats(boolean enabled, long accepted, long rejected, long reviewed, double remoteAvoidanceRate,
+                        double meanEvaluationMicros, double maxEvaluationMicros) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.payu.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payu.config.HttpClientConfig;
+import com.payu.config.SimulationProperties;
+import com.payu.model.SimulationProfile;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Motor de simulación detrás de los controladores mock: latencia según una distribución,
+// errores, solicitudes que nunca responden, respuestas goteadas y límite de throughput
+@Service
+public class SimulationService {
+
+    private static final List<String> DOWNSTREAMS = List.of(HttpClientConfig.BANK, HttpClientConfig.ANTIFRAUD);
+
+    private final SimulationProperties simulationProperties;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    private final Map<String, Simulation> simulations = new ConcurrentHashMap<>();
+
+    public SimulationService(SimulationProperties simulationProperties, ObjectMapper objectMapper) {
+        this.simulationProperties = simulationProperties;
+        this.objectMapper = objectMapper;
+        DOWNSTREAMS.forEach(this::reset);
+    }
+
+    public Map<String, SimulationProfile> profiles() {
+        Map<String, SimulationProfile> profiles = new TreeMap<>();
+        simulations.forEach((downstream, simulation) -> profiles.put(downstream, simulation.profile()));
+        return profiles;
+    }
+
+    public SimulationProfile profile(String downstream) {
+        return simulation(downstream).profile();
+    }
+
+    public SimulationProfile update(String downstream, SimulationProfile profile) {
+        simulation(downstream);
+        simulations.put(downstream, new Simulation(profile, rateLimiter(downstream, profile)));
+        return profile;
+    }
+
+    public SimulationProfile reset(String downstream) {
+        SimulationProfile configured = simulationProperties.getProfiles().getOrDefault(downstream, new SimulationProfile());
+        SimulationProfile profile = objectMapper.convertValue(configured, SimulationProfile.class);
+        simulations.put(downstream, new Simulation(profile, rateLimiter(downstream, profile)));
+        return profile;
+    }
+
+    // Las respuestas se emiten como texto JSON para poder gotear el cuerpo; la latencia se aplica antes
+    // de las cabeceras para que el cliente la perciba como tiempo de respuesta
+    public Mono<ResponseEntity<Flux<String>>> respond(String downstream, Supplier<?> body) {
+        return simulate(downstream, body, (profile, value) -> drip(profile, serialize(value)), error -> Flux.just(serialize(error)));
+    }
+
+    // La variante CBOR sale en un solo bloque: Spring MVC solo transmite por partes texto, SSE y NDJSON,
+    // por lo que el goteo no se aplica; el resto de la simulación es el mismo
+    public Mono<ResponseEntity<byte[]>> respondCbor(String downstream, Supplier<?> body) {
+        return simulate(downstream, body, (profile, value) -> serializeCbor(value), this::serializeCbor);
+    }
+
+    private <B> Mono<ResponseEntity<B>> simulate(String downstream, Supplier<?> body,
+                                                 BiFunction<SimulationProfile, Object, B> encode, Function<Object, B> encodeError) {
+        Simulation simulation = simulation(downstream);
+        SimulationProfile profile = simulation.profile();
+
+        if (simulation.rateLimiter() != null && !simulation.rateLimiter().acquirePermission()) {
+            return Mono.just(error(HttpStatus.TOO_MANY_REQUESTS.value(), "Límite de throughput simulado excedido.", encodeError));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < profile.getTimeoutRate()) {
+            return Mono.never();
+        }
+        boolean fail = random.nextDouble() < profile.getErrorRate();
+        Duration latency = sampleLatency(profile, random);
+
+        Mono<ResponseEntity<B>> response = Mono.fromSupplier(() -> fail
+                ? error(profile.getErrorStatus(), "Fallo simulado.", encodeError)
+                : ResponseEntity.ok(encode.apply(profile, body.get())));
+        return latency.isZero() ? response : Mono.delay(latency).then(response);
+    }
+
+    static Duration sampleLatency(SimulationProfile profile, ThreadLocalRandom random) {
+        long base = profile.getLatency().toNanos();
+        double nanos = switch (profile.getDistribution()) {
+            case FIXED -> base;
+            case NORMAL -> base + random.nextGaussian() * profile.getLatencyStdDev().toNanos();
+            // Inversa de la CDF de Pareto; 1 - U está en (0, 1] y evita la división por cero
+            case PARETO -> base / Math.pow(1 - random.nextDouble(), 1 / profile.getParetoShape());
+        };
+        return Duration.ofNanos((long) Math.max(0, Math.min(nanos, profile.getMaxLatency().toNanos())));
+    }
+
+    private Flux<String> drip(SimulationProfile profile, String json) {
+        if (profile.getDripInterval().isZero()) {
+            return Flux.just(json);
+        }
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < json.length(); i += profile.getDripChunkBytes()) {
+            chunks.add(json.substring(i, Math.min(json.length(), i + profile.getDripChunkBytes())));
+        }
+        return Flux.fromIterable(chunks).delayElements(profile.getDripInterval());
+    }
+
+    private static <B> ResponseEntity<B> error(int status, String message, Function<Object, B> encodeError) {
+        return ResponseEntity.status(status).body(encodeError.apply(Map.of("message", message)));
+    }
+
+    private String serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta simulada.", e);
+        }
+    }
+
+    private byte[] serializeCbor(Object body) {
+        try {
+            return cborMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta simulada.", e);
+        }
+    }
+
+    private Simulation simulation(String downstream) {
+        Simulation simulation = simulations.get(downstream);
+        if (simulation == null) {
+            throw new IllegalArgumentException("Servicio simulado desconocido: " + downstream);
+        }
+        return simulation;
+    }
+
+    private RateLimiter rateLimiter(String downstream, SimulationProfile profile) {
+        if (profile.getMaxRequestsPerSecond() <= 0) {
+            return null;
+        }
+        return RateLimiter.of("simulation-" + downstream, RateLimiterConfig.custom()
+                .limitForPeriod(profile.getMaxRequestsPerSecond())
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+    }
+
+    private record Simulation(SimulationProfile profile, RateLimiter rateLimiter) {
+    }
+}
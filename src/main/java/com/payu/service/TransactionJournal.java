@@ -0,0 +1,341 @@
+package com.payu.service;
+
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.PersistenceOverloadedException;
+import com.payu.model.Transaction;
+import com.payu.repository.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Diario de solo anexado de pagos y reembolsos en segmentos de archivo (formato en JournalCodec).
+// Un único hilo escribe todo lo que encuentra en cola con una sola escritura y un solo fsync
+// (group commit) y confirma a la vez a todas las solicitudes del lote. Al superar segmentSize se
+// abre un segmento nuevo; al arrancar los segmentos se leen en orden, mapeados en memoria, para
+// reconstruir las transacciones. Solo se activa con payu.persistence.mode=JOURNAL
+@Slf4j
+@Component
+public class TransactionJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // Cabecera de cada segmento: "PAYJ" y versión del formato
+    private static final int MAGIC = 0x5041594A;
+    // La versión 2 guarda los montos en unidades menores (Money); los segmentos de la 1 no se leen
+    private static final int VERSION = 2;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final PersistenceProperties.Journal properties;
+    private final boolean enabled;
+    private final Path directory;
+    private final BlockingQueue<Pending> queue;
+    private final Timer commitTimer;
+    private final DistributionSummary batchSizes;
+
+    // Solo los usa el hilo escritor una vez arrancado
+    private FileChannel segment;
+    private long segmentIndex;
+    private long position;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_BYTES);
+    private BiConsumer<List<Transaction>, Position> onCommit;
+
+    private Thread writer;
+    private volatile boolean running;
+    private boolean replayed;
+
+    public TransactionJournal(PersistenceProperties persistenceProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = persistenceProperties.getJournal();
+        this.enabled = persistenceProperties.getMode() == PersistenceProperties.Mode.JOURNAL;
+        this.directory = Path.of(properties.getDirectory());
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("payu.persistence.journal.queue", queue, BlockingQueue::size)
+                .description("Transacciones pendientes de escribir en el diario")
+                .register(registry);
+        this.commitTimer = Timer.builder("payu.persistence.journal.commit")
+                .description("Escritura y fsync de un lote del diario")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("payu.persistence.journal.batch.size")
+                .description("Transacciones confirmadas por cada fsync del diario")
+                .register(registry);
+    }
+
+    // Entrega cada transacción del diario en orden. Un registro incompleto o dañado al final del
+    // último segmento es una escritura cortada por una caída y se recorta; en cualquier otro
+    // segmento el diario está dañado y no se arranca
+    public long replay(Consumer<Transaction> sink) {
+        return replay(null, (transaction, position) -> sink.accept(transaction));
+    }
+
+    // Como replay(sink), pero empieza en from (null: desde el principio) y entrega con cada
+    // transacción la posición del diario justo detrás de ella
+    public long replay(Position from, BiConsumer<Transaction, Position> sink) {
+        if (!enabled) {
+            return 0;
+        }
+        long count = 0;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size(); i++) {
+                long index = index(segments.get(i));
+                if (from != null && index < from.segment()) {
+                    continue;
+                }
+                long offset = from != null && index == from.segment() ? from.offset() : SEGMENT_HEADER_BYTES;
+                count += replay(segments.get(i), index, offset, i == segments.size() - 1, sink);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el diario de transacciones en " + directory, e);
+        }
+        replayed = true;
+        return count;
+    }
+
+    private long replay(Path path, long index, long offset, boolean last, BiConsumer<Transaction, Position> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < SEGMENT_HEADER_BYTES) {
+                if (!last) {
+                    throw new IllegalStateException("Segmento del diario sin cabecera: " + path);
+                }
+                channel.truncate(0);
+                writeHeader(channel);
+                return 0;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                throw new IllegalStateException("Segmento del diario con cabecera desconocida: " + path);
+            }
+            mapped.position((int) Math.min(Math.max(offset, SEGMENT_HEADER_BYTES), size));
+            long count = 0;
+            for (Transaction transaction = JournalCodec.decode(mapped); transaction != null; transaction = JournalCodec.decode(mapped)) {
+                sink.accept(transaction, new Position(index, mapped.position()));
+                count++;
+            }
+            if (mapped.hasRemaining()) {
+                if (!last) {
+                    throw new IllegalStateException("Segmento del diario dañado en la posición " + mapped.position() + ": " + path);
+                }
+                log.warn("Se recortan {} bytes de un registro incompleto al final de {}", mapped.remaining(), path);
+                channel.truncate(mapped.position());
+                channel.force(true);
+            }
+            return count;
+        }
+    }
+
+    // Abre el último segmento para anexar y arranca el hilo escritor; onCommit recibe cada lote
+    // ya escrito en disco y la posición del diario detrás de él, antes de confirmarlo a quien lo pidió
+    public void start(BiConsumer<List<Transaction>, Position> onCommit) {
+        if (!enabled) {
+            return;
+        }
+        if (!replayed) {
+            throw new IllegalStateException("El diario debe reproducirse antes de aceptar escrituras.");
+        }
+        this.onCommit = onCommit;
+        try {
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                openSegment(1);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                segmentIndex = index(last);
+                segment = FileChannel.open(last, StandardOpenOption.WRITE);
+                position = segment.size();
+                segment.position(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de transacciones en " + directory, e);
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("payu-journal").daemon().start(this::writeLoop);
+    }
+
+    // El hilo termina de escribir la cola antes de cerrar el contexto
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        writer = null;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el segmento {} del diario", segmentIndex, e);
+        }
+    }
+
+    // Se completa cuando la transacción está escrita (y sincronizada si fsync está activo). El ID
+    // se asigna aquí porque el registro lo incluye
+    public CompletableFuture<Transaction> append(Transaction transaction) {
+        if (!running) {
+            throw new IllegalStateException("El diario de transacciones no está activo.");
+        }
+        // Un registro que no puede codificarse se rechaza aquí y no hace fallar al resto de su lote
+        JournalCodec.requireEncodable(transaction);
+        if (transaction.getId() == null) {
+            transaction.setId(TimeOrderedIdGenerator.nextId());
+        }
+        Pending pending = new Pending(transaction, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, properties.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new PersistenceOverloadedException("La cola del diario de transacciones está llena.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceOverloadedException("Interrumpido esperando la cola del diario de transacciones.");
+        }
+        return pending.committed();
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                BatchCollector.collect(queue, batch, properties.getBatchSize(), properties.getFlushInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long start = System.nanoTime();
+        long committed = position;
+        try {
+            buffer.clear();
+            for (Pending pending : batch) {
+                int size = JournalCodec.encodedSize(pending.transaction());
+                if (buffer.remaining() < size) {
+                    buffer = grow(buffer, size);
+                }
+                JournalCodec.encode(pending.transaction(), buffer);
+            }
+            buffer.flip();
+            if (position > SEGMENT_HEADER_BYTES && position + buffer.remaining() > properties.getSegmentSize().toBytes()) {
+                roll();
+                committed = position;
+            }
+            while (buffer.hasRemaining()) {
+                position += segment.write(buffer);
+            }
+            if (properties.isFsync()) {
+                segment.force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("No se pudo escribir un lote de {} transacciones en el diario", batch.size(), e);
+            discardFrom(committed);
+            IllegalStateException failure = new IllegalStateException("No se pudo escribir en el diario de transacciones.", e);
+            batch.forEach(pending -> pending.committed().completeExceptionally(failure));
+            return;
+        }
+        commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+
+        try {
+            onCommit.accept(batch.stream().map(Pending::transaction).toList(), new Position(segmentIndex, position));
+        } catch (RuntimeException e) {
+            log.error("Error al procesar un lote confirmado de {} transacciones del diario", batch.size(), e);
+        }
+        batch.forEach(pending -> pending.committed().complete(pending.transaction()));
+    }
+
+    // Quita una escritura parcial para que el siguiente lote no quede detrás de un registro cortado
+    private void discardFrom(long committed) {
+        try {
+            segment.truncate(committed);
+            segment.position(committed);
+            position = committed;
+        } catch (IOException e) {
+            log.error("No se pudo recortar el segmento {} del diario", segmentIndex, e);
+        }
+    }
+
+    private void roll() throws IOException {
+        segment.force(true);
+        segment.close();
+        openSegment(segmentIndex + 1);
+    }
+
+    private void openSegment(long index) throws IOException {
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writeHeader(segment);
+        segmentIndex = index;
+        position = SEGMENT_HEADER_BYTES;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, SEGMENT_HEADER_BYTES - header.remaining());
+        }
+        channel.position(SEGMENT_HEADER_BYTES);
+        channel.force(true);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long index(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    // Segmento y desplazamiento dentro de él, en bytes
+    public record Position(long segment, long offset) {
+    }
+
+    private record Pending(Transaction transaction, CompletableFuture<Transaction> committed) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.payu.service;
+
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.TransactionNotFoundException;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionPage;
+import com.payu.model.TransactionQuery;
+import com.payu.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Consultas de conciliación sobre las transacciones. Las páginas usan keyset sobre el ID, que crece
+// con el tiempo, por lo que el coste de una página no depende de su posición. La exportación recorre
+// el resultado con un cursor de solo avance en una sesión sin estado: no hay contexto de persistencia
+// que crezca con las filas leídas
+@Service
+public class TransactionQueryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1_000;
+
+    // Filas que el driver trae por viaje durante la exportación
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final SessionFactory sessionFactory;
+    private final PersistenceProperties.Mode mode;
+    private final TransactionWriteBehind transactionWriteBehind;
+    private final JournalProjection journalProjection;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TransactionQueryService(TransactionRepository transactionRepository, EntityManagerFactory entityManagerFactory,
+                                   PersistenceProperties persistenceProperties, TransactionWriteBehind transactionWriteBehind,
+                                   JournalProjection journalProjection) {
+        this.transactionRepository = transactionRepository;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.mode = persistenceProperties.getMode();
+        this.transactionWriteBehind = transactionWriteBehind;
+        this.journalProjection = journalProjection;
+    }
+
+    public Transaction find(Long id) {
+        return findSaved(id)
+                .orElseThrow(() -> new TransactionNotFoundException("Transacción no encontrada."));
+    }
+
+    // Con WRITE_BEHIND o JOURNAL una transacción ya confirmada puede no haber llegado aún a la base:
+    // si está en camino se espera, como mucho ack-timeout, a que se guarde
+    public Optional<Transaction> findSaved(Long id) {
+        Optional<Transaction> transaction = transactionRepository.findById(id);
+        if (transaction.isPresent()) {
+            return transaction;
+        }
+        boolean arriving = switch (mode) {
+            case DIRECT -> false;
+            case WRITE_BEHIND -> transactionWriteBehind.awaitFlushed(id);
+            case JOURNAL -> journalProjection.awaitProjected(id);
+        };
+        return arriving ? transactionRepository.findById(id) : transaction;
+    }
+
+    @Transactional(readOnly = true)
+    public TransactionPage page(TransactionQuery query, Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_PAGE_SIZE + ".");
+        }
+        Filter filter = Filter.of(query, after);
+        TypedQuery<Transaction> select = entityManager.createQuery(filter.jpql(), Transaction.class)
+                .setMaxResults(limit + 1);
+        filter.parameters().forEach(select::setParameter);
+        List<Transaction> items = select.getResultList();
+
+        // Se pide una fila de más para saber si hay otra página sin contar el total
+        if (items.size() <= limit) {
+            return new TransactionPage(items, null);
+        }
+        List<Transaction> page = items.subList(0, limit);
+        return new TransactionPage(List.copyOf(page), page.get(limit - 1).getId());
+    }
+
+    public void export(TransactionQuery query, Consumer<Transaction> sink) {
+        Filter filter = Filter.of(query, null);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.beginTransaction();
+            try {
+                SelectionQuery<Transaction> select = session.createSelectionQuery(filter.jpql(), Transaction.class)
+                        .setFetchSize(EXPORT_FETCH_SIZE);
+                filter.parameters().forEach(select::setParameter);
+                try (ScrollableResults<Transaction> rows = select.scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (rows.next()) {
+                        sink.accept(rows.get());
+                    }
+                }
+                session.getTransaction().commit();
+            } catch (RuntimeException e) {
+                session.getTransaction().rollback();
+                throw e;
+            }
+        }
+    }
+
+    private record Filter(String jpql, Map<String, Object> parameters) {
+
+        static Filter of(TransactionQuery query, Long after) {
+            StringBuilder jpql = new StringBuilder("SELECT t FROM Transaction t WHERE 1 = 1");
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            if (query.getCardNumber() != null) {
+                jpql.append(" AND t.cardNumber = :cardNumber");
+                parameters.put("cardNumber", query.getCardNumber());
+            }
+            if (query.getType() != null) {
+                jpql.append(" AND t.type = :type");
+                parameters.put("type", query.getType());
+            }
+            if (query.getStatus() != null) {
+                jpql.append(" AND t.status = :status");
+                parameters.put("status", query.getStatus());
+            }
+            if (query.getOriginalTransactionId() != null) {
+                jpql.append(" AND t.originalTransactionId = :originalTransactionId");
+                parameters.put("originalTransactionId", query.getOriginalTransactionId());
+            }
+            if (query.getFrom() != null) {
+                jpql.append(" AND t.timestamp >= :from");
+                parameters.put("from", query.getFrom());
+            }
+            if (query.getTo() != null) {
+                jpql.append(" AND t.timestamp < :to");
+                parameters.put("to", query.getTo());
+            }
+            if (after != null) {
+                jpql.append(" AND t.id > :after");
+                parameters.put("after", after);
+            }
+            return new Filter(jpql.append(" ORDER BY t.id").toString(), parameters);
+        }
+    }
+}
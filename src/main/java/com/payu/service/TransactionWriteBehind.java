@@ -0,0 +1,229 @@
+package com.payu.service;
+
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.PersistenceOverloadedException;
+import com.payu.model.Transaction;
+import com.payu.repository.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Cola acotada de transacciones pendientes de persistir. Un único hilo las inserta en lotes JDBC
+// (hibernate.jdbc.batch_size) al reunir batchSize transacciones o al cumplirse flushInterval.
+// Solo se activa con payu.persistence.mode=WRITE_BEHIND, o con JOURNAL para proyectar el diario
+@Slf4j
+@Component
+public class TransactionWriteBehind {
+
+    private final PersistenceProperties.WriteBehind properties;
+    private final boolean enabled;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Pending> queue;
+    // Transacciones encoladas aún sin guardar, para las lecturas que llegan antes que el INSERT
+    private final Map<Long, CompletableFuture<Transaction>> unflushed = new ConcurrentHashMap<>();
+    private final Duration ackTimeout;
+    private final Counter failed;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Thread flusher;
+    private volatile boolean running;
+
+    public TransactionWriteBehind(PersistenceProperties persistenceProperties, PlatformTransactionManager transactionManager,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = persistenceProperties.getWriteBehind();
+        this.enabled = persistenceProperties.getMode() == PersistenceProperties.Mode.WRITE_BEHIND
+                || persistenceProperties.getMode() == PersistenceProperties.Mode.JOURNAL;
+        this.ackTimeout = persistenceProperties.getAckTimeout();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("payu.persistence.write_behind.queue", queue, BlockingQueue::size)
+                    .description("Transacciones pendientes de persistir")
+                    .register(registry);
+        }
+        this.failed = registry == null ? null : Counter.builder("payu.persistence.write_behind.failed")
+                .description("Transacciones que no se pudieron persistir tras los reintentos")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofPlatform().name("payu-write-behind").daemon().start(this::flushLoop);
+    }
+
+    // El hilo termina de vaciar la cola antes de cerrar el contexto; si no lo consigue a tiempo se
+    // interrumpe y lo que quede en cola se da por fallido
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        if (flusher.isAlive()) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(1));
+        }
+    }
+
+    // El ID se asigna al encolar para que la respuesta lo incluya aunque el INSERT sea posterior
+    public CompletableFuture<Transaction> enqueue(Transaction transaction) {
+        CompletableFuture<Transaction> flushed = enqueueUntilFlushed(transaction);
+        return properties.getAck() == PersistenceProperties.Ack.ENQUEUED
+                ? CompletableFuture.completedFuture(transaction)
+                : flushed;
+    }
+
+    // Como enqueue, pero se completa al guardarse la fila sea cual sea ack
+    public CompletableFuture<Transaction> enqueueUntilFlushed(Transaction transaction) {
+        if (!enabled) {
+            throw new IllegalStateException("La escritura diferida no está activa.");
+        }
+        if (!running) {
+            throw new PersistenceOverloadedException("La escritura diferida está detenida.");
+        }
+        if (transaction.getId() == null) {
+            transaction.setId(TimeOrderedIdGenerator.nextId());
+        }
+        Pending pending = new Pending(transaction, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, properties.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new PersistenceOverloadedException("La cola de persistencia está llena.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceOverloadedException("Interrumpido esperando la cola de persistencia.");
+        }
+        // Encolada mientras se detenía: si el hilo ya salió nadie la tomará
+        if (!running && queue.remove(pending)) {
+            throw new PersistenceOverloadedException("La escritura diferida está detenida.");
+        }
+        Long id = transaction.getId();
+        unflushed.put(id, pending.flushed());
+        pending.flushed().whenComplete((saved, error) -> unflushed.remove(id, pending.flushed()));
+        return pending.flushed();
+    }
+
+    // Espera, como mucho ack-timeout, a que se guarde una transacción encolada. Devuelve false si no
+    // está en la cola o no llega a guardarse
+    public boolean awaitFlushed(long id) {
+        CompletableFuture<Transaction> flushed = unflushed.get(id);
+        if (flushed == null) {
+            return false;
+        }
+        try {
+            flushed.get(ackTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(properties.getBatchSize());
+        try {
+            while (running || !queue.isEmpty()) {
+                BatchCollector.collect(queue, batch, properties.getBatchSize(), properties.getFlushInterval());
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Ningún futuro queda sin completar aunque el hilo se interrumpa
+            queue.drainTo(batch);
+            if (!batch.isEmpty()) {
+                PersistenceOverloadedException stopped = new PersistenceOverloadedException("La escritura diferida se detuvo sin persistir la transacción.");
+                batch.forEach(pending -> abandon(pending, stopped));
+            }
+        }
+    }
+
+    // Con ack=ENQUEUED las transacciones del lote ya se confirmaron al cliente: un fallo se reintenta
+    // con espera exponencial y, si persiste, se insertan una a una para que una fila inválida no
+    // arrastre al resto. Solo las que fallan también por separado se dan por perdidas
+    private void flush(List<Pending> batch) throws InterruptedException {
+        long backoffMillis = properties.getRetryBackoff().toMillis();
+        for (int attempt = 1; attempt <= properties.getFlushAttempts(); attempt++) {
+            try {
+                persist(batch);
+                batch.forEach(pending -> pending.flushed().complete(pending.transaction()));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Intento {} de persistir un lote de {} transacciones fallido", attempt, batch.size(), e);
+            }
+            if (attempt < properties.getFlushAttempts()) {
+                Thread.sleep(backoffMillis);
+                backoffMillis *= 2;
+            }
+        }
+        for (Pending pending : batch) {
+            try {
+                persist(List.of(pending));
+                pending.flushed().complete(pending.transaction());
+            } catch (RuntimeException e) {
+                abandon(pending, e);
+            }
+        }
+    }
+
+    private void persist(List<Pending> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Pending pending : batch) {
+                entityManager.persist(pending.transaction());
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private void abandon(Pending pending, RuntimeException cause) {
+        if (failed != null) {
+            failed.increment();
+        }
+        log.error("Transacción {} sin persistir ({} {}, tarjeta terminada en {})", pending.transaction().getId(),
+                pending.transaction().getAmount(), pending.transaction().getCurrency(), lastDigits(pending.transaction()), cause);
+        pending.flushed().completeExceptionally(cause);
+    }
+
+    private static String lastDigits(Transaction transaction) {
+        String cardNumber = transaction.getCardNumber();
+        return cardNumber == null || cardNumber.length() < 4 ? "" : cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    private record Pending(Transaction transaction, CompletableFuture<Transaction> flushed) {
+    }
+}
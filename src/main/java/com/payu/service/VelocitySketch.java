@@ -0,0 +1,79 @@
+package com.payu.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Conteo aproximado de intentos por tarjeta en una ventana deslizante: un count-min sketch por
+// tramo de la ventana, sobre arrays atómicos de tamaño fijo. Sin bloqueos ni memoria por tarjeta.
+// Las colisiones solo cuentan de más; al rotar un tramo pueden perderse incrementos concurrentes
+// con el vaciado (ver rotate), así que el conteo también puede quedarse corto en unos pocos intentos
+class VelocitySketch {
+
+    private final int slots;
+    private final long slotMillis;
+    private final int depth;
+    private final int widthMask;
+    private final AtomicIntegerArray counters;
+    private final AtomicLongArray slotEpochs;
+
+    VelocitySketch(long windowMillis, int slots, int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("El ancho del sketch debe ser potencia de dos.");
+        }
+        this.slots = slots;
+        this.slotMillis = Math.max(1, windowMillis / slots);
+        this.depth = depth;
+        this.widthMask = width - 1;
+        this.counters = new AtomicIntegerArray(slots * depth * width);
+        this.slotEpochs = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            slotEpochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    // Registra un intento y devuelve el total estimado de la ventana incluyéndolo
+    int incrementAndCount(long cardHash, long nowMillis) {
+        long epoch = nowMillis / slotMillis;
+        int slot = (int) Math.floorMod(epoch, (long) slots);
+        rotate(slot, epoch);
+        int base = slot * depth * (widthMask + 1);
+        for (int row = 0; row < depth; row++) {
+            counters.incrementAndGet(base + row * (widthMask + 1) + column(cardHash, row));
+        }
+        return count(cardHash, epoch);
+    }
+
+    private int count(long cardHash, long epoch) {
+        int total = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            long slotEpoch = slotEpochs.get(slot);
+            if (slotEpoch <= epoch - slots) {
+                continue;
+            }
+            int base = slot * depth * (widthMask + 1);
+            int min = Integer.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                min = Math.min(min, counters.get(base + row * (widthMask + 1) + column(cardHash, row)));
+            }
+            total += min;
+        }
+        return total;
+    }
+
+    // El primer hilo que entra en un tramo nuevo lo vacía; un incremento concurrente con el
+    // vaciado puede perderse, lo que solo resta precisión al conteo aproximado
+    private void rotate(int slot, long epoch) {
+        long current = slotEpochs.get(slot);
+        if (current != epoch && current < epoch && slotEpochs.compareAndSet(slot, current, epoch)) {
+            int base = slot * depth * (widthMask + 1);
+            for (int i = base; i < base + depth * (widthMask + 1); i++) {
+                counters.set(i, 0);
+            }
+        }
+    }
+
+    private int column(long cardHash, int row) {
+        long h = cardHash * (0x9E3779B97F4A7C15L + 2L * row);
+        return (int) (h >>> 40) & widthMask;
+    }
+}
@@ -0,0 +1,130 @@
+package com.payu.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payu.config.PaymentProperties;
+import com.payu.model.MaskedCardNumber;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeoutException;
+
+// Envía el resultado de los pagos asíncronos a la URL configurada. La URL no llega en la solicitud
+// de pago para que un cliente no pueda dirigir llamadas del servidor a destinos arbitrarios.
+// El receptor verifica X-Payu-Signature (HMAC-SHA256 del cuerpo) y debe tolerar entregas repetidas.
+// El cuerpo lleva solo el resultado y la tarjeta enmascarada, nunca el número completo
+@Slf4j
+@Component
+public class WebhookNotifier {
+
+    static final String SIGNATURE_HEADER = "X-Payu-Signature";
+
+    private final PaymentProperties.Webhook properties;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final Counter delivered;
+    private final Counter failed;
+
+    public WebhookNotifier(PaymentProperties paymentProperties, WebClient.Builder builder, ObjectMapper objectMapper,
+                           MeterRegistry registry) {
+        this.properties = paymentProperties.getWebhook();
+        this.webClient = builder.clone().build();
+        this.objectMapper = objectMapper;
+        this.delivered = Counter.builder("payu.webhook.deliveries")
+                .description("Notificaciones de pagos asíncronos")
+                .tag("result", "delivered")
+                .register(registry);
+        this.failed = Counter.builder("payu.webhook.deliveries")
+                .description("Notificaciones de pagos asíncronos")
+                .tag("result", "failed")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return properties.getUrl() != null && !properties.getUrl().isBlank();
+    }
+
+    // Completa cuando el receptor responde 2xx o se agotan los intentos; nunca termina con error
+    public Mono<Void> notify(Transaction transaction) {
+        if (!isEnabled()) {
+            return Mono.empty();
+        }
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(Notification.of(transaction));
+        } catch (JsonProcessingException e) {
+            failed.increment();
+            log.error("No se pudo serializar la notificación del pago {}", transaction.getId(), e);
+            return Mono.empty();
+        }
+
+        WebClient.RequestBodySpec request = webClient.post()
+                .uri(properties.getUrl())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (properties.getSecret() != null && !properties.getSecret().isBlank()) {
+            request.header(SIGNATURE_HEADER, "sha256=" + sign(body, properties.getSecret()));
+        }
+        return request.bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(properties.getTimeout())
+                .retryWhen(Retry.backoff(properties.getMaxAttempts() - 1, properties.getInitialBackoff())
+                        .maxBackoff(properties.getMaxBackoff())
+                        .filter(WebhookNotifier::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnSuccess(response -> delivered.increment())
+                .then()
+                .onErrorResume(error -> {
+                    failed.increment();
+                    log.warn("No se pudo notificar el resultado del pago {}: {}", transaction.getId(), error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    public static String sign(String body, String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Notification(Long id, TransactionStatus status, BigDecimal amount, String currency,
+                                String cardNumber) {
+
+        static Notification of(Transaction transaction) {
+            return new Notification(transaction.getId(), transaction.getStatus(), transaction.getAmount(),
+                    transaction.getCurrency(), MaskedCardNumber.mask(transaction.getCardNumber()));
+        }
+    }
+
+    // Errores de red, plazo agotado, 5xx, 408 y 429; el resto de 4xx no mejora al repetir
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientRequestException || error instanceof TimeoutException) {
+            return true;
+        }
+        return error instanceof WebClientResponseException response
+                && (response.getStatusCode().is5xxServerError()
+                || response.getStatusCode().value() == HttpStatus.REQUEST_TIMEOUT.value()
+                || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+}
@@ -0,0 +1,34 @@
+-- Esquema inicial. El ID de transaction lo asigna la aplicación (TimeOrderedIdGenerator): es
+-- BIGINT sin identidad y crece con el tiempo, por lo que los INSERT siempre van al final del índice
+
+CREATE TABLE transaction (
+    id                      BIGINT         NOT NULL,
+    card_number             VARCHAR(19)    NOT NULL,
+    amount                  NUMERIC(19, 2) NOT NULL,
+    currency                CHAR(3)        NOT NULL,
+    type                    VARCHAR(8)     NOT NULL,
+    timestamp               TIMESTAMP(6)   NOT NULL,
+    original_transaction_id BIGINT,
+    bank_transaction_id     VARCHAR(64),
+    refunded_amount         NUMERIC(19, 2) DEFAULT 0 NOT NULL,
+    CONSTRAINT pk_transaction PRIMARY KEY (id),
+    CONSTRAINT ck_transaction_type CHECK (type IN ('PURCHASE', 'REFUND')),
+    CONSTRAINT ck_transaction_refunded_amount CHECK (refunded_amount >= 0)
+);
+
+-- Reembolsos de una compra: la reserva del monto actualiza la compra por clave primaria y los
+-- reembolsos existentes se leen por (original_transaction_id, type)
+CREATE INDEX idx_transaction_original_type_id ON transaction (original_transaction_id, type, id);
+
+-- Consultas de conciliación (GET /api/transactions): filtro seguido del keyset por id
+CREATE INDEX idx_transaction_card_id ON transaction (card_number, id);
+CREATE INDEX idx_transaction_type_id ON transaction (type, id);
+CREATE INDEX idx_transaction_timestamp_id ON transaction (timestamp, id);
+
+CREATE TABLE idempotency_record (
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    transaction_id  BIGINT       NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_idempotency_record PRIMARY KEY (idempotency_key)
+);
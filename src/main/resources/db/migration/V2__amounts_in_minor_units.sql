@@ -0,0 +1,26 @@
+-- Los montos pasan a BIGINT en unidades menores de la moneda de cada fila (Money): centavos para
+-- USD o COP, yenes para JPY, milésimas para KWD. Los factores siguen la escala ISO 4217 que usa
+-- Money.scale; el resto de monedas, conocidas o no, tiene dos decimales
+
+ALTER TABLE transaction ADD COLUMN minor_unit_factor BIGINT;
+UPDATE transaction SET minor_unit_factor = CASE
+    WHEN currency IN ('BIF', 'CLP', 'DJF', 'GNF', 'ISK', 'JPY', 'KMF', 'KRW', 'PYG', 'RWF', 'UGX', 'UYI',
+                      'VND', 'VUV', 'XAF', 'XOF', 'XPF') THEN 1
+    WHEN currency IN ('BHD', 'IQD', 'JOD', 'KWD', 'LYD', 'OMR', 'TND') THEN 1000
+    WHEN currency = 'CLF' THEN 10000
+    ELSE 100
+END;
+
+-- Los decimales que la moneda no admite (solo posibles con la columna NUMERIC anterior) se redondean
+ALTER TABLE transaction ADD COLUMN amount_minor BIGINT;
+ALTER TABLE transaction ADD COLUMN refunded_amount_minor BIGINT DEFAULT 0 NOT NULL;
+UPDATE transaction SET
+    amount_minor          = CAST(ROUND(amount * minor_unit_factor, 0) AS BIGINT),
+    refunded_amount_minor = CAST(ROUND(refunded_amount * minor_unit_factor, 0) AS BIGINT);
+ALTER TABLE transaction ALTER COLUMN amount_minor SET NOT NULL;
+
+ALTER TABLE transaction DROP CONSTRAINT ck_transaction_refunded_amount;
+ALTER TABLE transaction DROP COLUMN amount;
+ALTER TABLE transaction DROP COLUMN refunded_amount;
+ALTER TABLE transaction DROP COLUMN minor_unit_factor;
+ALTER TABLE transaction ADD CONSTRAINT ck_transaction_refunded_amount CHECK (refunded_amount_minor >= 0);
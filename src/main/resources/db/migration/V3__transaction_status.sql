@@ -0,0 +1,8 @@
+-- Estado de la transacción (TransactionStatus). Las filas existentes se procesaron de forma síncrona
+-- y solo se guardaban las aprobadas
+
+ALTER TABLE transaction ADD COLUMN status VARCHAR(8) DEFAULT 'APPROVED' NOT NULL;
+ALTER TABLE transaction ADD CONSTRAINT ck_transaction_status CHECK (status IN ('PENDING', 'APPROVED', 'DECLINED', 'FRAUD'));
+
+-- Recuperación al arrancar de los pagos aceptados que no llegaron a completarse
+CREATE INDEX idx_transaction_status_id ON transaction (status, id);
@@ -0,0 +1,11 @@
+-- Posición del diario de transacciones (payu.persistence.mode=JOURNAL) hasta la que todo está en
+-- la base. Al arrancar el diario se reproduce desde aquí; el segmento 0 indica desde el principio
+
+CREATE TABLE journal_projection_checkpoint (
+    id INT PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    segment_offset BIGINT NOT NULL,
+    CONSTRAINT ck_journal_projection_checkpoint_single CHECK (id = 1)
+);
+
+INSERT INTO journal_projection_checkpoint (id, segment, segment_offset) VALUES (1, 0, 0);
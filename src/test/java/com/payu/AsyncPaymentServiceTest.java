@@ -0,0 +1,247 @@
+package com.payu;
+
+import com.payu.config.PaymentProperties;
+import com.payu.exception.PaymentQueueFullException;
+import com.payu.model.PaymentRequest;
+import com.payu.model.RefundRequest;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionStatus;
+import com.payu.repository.TransactionRepository;
+import com.payu.service.AsyncPaymentService;
+import com.payu.service.PaymentService;
+import com.payu.service.SimulationService;
+import com.payu.service.WebhookNotifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=18081",
+        "payu.payment.async.enabled=true",
+        "payu.payment.async.workers=1",
+        "payu.payment.async.queue-capacity=1",
+        "payu.antifraud.cache.enabled=false"
+})
+public class AsyncPaymentServiceTest {
+
+    @Autowired
+    private AsyncPaymentService asyncPaymentService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private PaymentRequest paymentRequest;
+
+    @BeforeEach
+    void setUp() {
+        paymentRequest = new PaymentRequest();
+        paymentRequest.setCardNumber("4111111111111111");
+        paymentRequest.setCardHolderName("Juan Pérez");
+        paymentRequest.setAmount(new BigDecimal("500.00"));
+        paymentRequest.setCurrency("USD");
+        paymentRequest.setExpirationDate(YearMonth.now().plusYears(2));
+        paymentRequest.setCvv("123");
+    }
+
+    @AfterEach
+    void resetFaults() {
+        simulationService.reset("bank");
+    }
+
+    @Test
+    void testAcceptedPaymentIsApprovedInTheBackground() throws InterruptedException {
+        ResponseEntity<Transaction> response = restTemplate.postForEntity("/api/payments", paymentRequest, Transaction.class);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(TransactionStatus.PENDING, response.getBody().getStatus());
+        assertNull(response.getBody().getBankTransactionId());
+        assertEquals("/api/transactions/" + response.getBody().getId(), response.getHeaders().getLocation().toString());
+
+        Transaction completed = awaitFinal(response.getHeaders().getLocation().toString());
+        assertEquals(TransactionStatus.APPROVED, completed.getStatus());
+        assertNotNull(completed.getBankTransactionId());
+    }
+
+    @Test
+    void testFraudAndBankDeclinesBecomeFinalStatuses() throws InterruptedException {
+        paymentRequest.setAmount(new BigDecimal("1500.00"));
+        Transaction fraud = asyncPaymentService.submit(paymentRequest);
+        assertEquals(TransactionStatus.FRAUD, awaitFinal("/api/transactions/" + fraud.getId()).getStatus());
+
+        paymentRequest.setAmount(new BigDecimal("500.00"));
+        paymentRequest.setCardNumber("4111000211110000");
+        Transaction declined = asyncPaymentService.submit(paymentRequest);
+        Transaction completed = awaitFinal("/api/transactions/" + declined.getId());
+        assertEquals(TransactionStatus.DECLINED, completed.getStatus());
+        assertNull(completed.getBankTransactionId());
+    }
+
+    @Test
+    void testOnlyApprovedPaymentsCanBeRefunded() throws InterruptedException {
+        simulationService.profile("bank").setLatency(Duration.ofMillis(500));
+        Transaction pending = asyncPaymentService.submit(paymentRequest);
+
+        RefundRequest refundRequest = new RefundRequest();
+        refundRequest.setOriginalTransactionId(pending.getId());
+        refundRequest.setAmount(new BigDecimal("100.00"));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> paymentService.processRefund(refundRequest));
+        assertEquals("Solo se pueden reembolsar pagos aprobados.", exception.getMessage());
+
+        awaitFinal("/api/transactions/" + pending.getId());
+        assertEquals(new BigDecimal("-100.00"), paymentService.processRefund(refundRequest).getAmount());
+    }
+
+    @Test
+    void testFullQueueRejectsBeforeSaving() throws InterruptedException {
+        simulationService.profile("bank").setLatency(Duration.ofMillis(500));
+        List<Transaction> accepted = new ArrayList<>();
+        // Un worker y una plaza en cola
+        accepted.add(asyncPaymentService.submit(paymentRequest));
+        accepted.add(asyncPaymentService.submit(paymentRequest));
+        long saved = transactionRepository.count();
+
+        assertThrows(PaymentQueueFullException.class, () -> asyncPaymentService.submit(paymentRequest));
+        assertEquals(saved, transactionRepository.count());
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/payments", paymentRequest, String.class);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+
+        for (Transaction transaction : accepted) {
+            assertEquals(TransactionStatus.APPROVED, awaitFinal("/api/transactions/" + transaction.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void testWebhookRetriesTransientFailuresAndSignsTheBody() {
+        AtomicInteger attempts = new AtomicInteger();
+        Queue<String> signatures = new ConcurrentLinkedQueue<>();
+        Queue<String> bodies = new ConcurrentLinkedQueue<>();
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> bodyOf(request).map(body -> {
+            signatures.add(request.headers().getFirst("X-Payu-Signature"));
+            bodies.add(body);
+            HttpStatus status = attempts.incrementAndGet() < 3 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
+            return ClientResponse.create(status).build();
+        }));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WebhookNotifier notifier = new WebhookNotifier(webhookProperties(5), builder,
+                Jackson2ObjectMapperBuilder.json().build(), registry);
+
+        notifier.notify(approvedTransaction()).block(Duration.ofSeconds(5));
+
+        assertEquals(3, attempts.get());
+        assertEquals(3, signatures.size());
+        String body = bodies.peek();
+        assertTrue(bodies.stream().allMatch(body::equals));
+        assertTrue(signatures.stream().allMatch(signature -> signature.equals("sha256=" + WebhookNotifier.sign(body, "secreto"))));
+        assertEquals("{\"id\":1,\"status\":\"APPROVED\",\"amount\":500.00,\"currency\":\"USD\",\"cardNumber\":\"************1111\"}", body);
+        assertEquals(1.0, registry.get("payu.webhook.deliveries").tag("result", "delivered").counter().count());
+    }
+
+    @Test
+    void testWebhookDoesNotRetryClientErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            attempts.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.BAD_REQUEST).build());
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WebhookNotifier notifier = new WebhookNotifier(webhookProperties(5), builder,
+                Jackson2ObjectMapperBuilder.json().build(), registry);
+
+        notifier.notify(approvedTransaction()).block(Duration.ofSeconds(5));
+
+        assertEquals(1, attempts.get());
+        assertEquals(1.0, registry.get("payu.webhook.deliveries").tag("result", "failed").counter().count());
+    }
+
+    private Transaction awaitFinal(String location) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Transaction transaction = restTemplate.getForObject(location, Transaction.class);
+            if (transaction.getStatus().isFinal()) {
+                return transaction;
+            }
+            Thread.sleep(50);
+        }
+        fail("El pago no llegó a un estado final: " + location);
+        return null;
+    }
+
+    private static Mono<String> bodyOf(ClientRequest request) {
+        MockClientHttpRequest message = new MockClientHttpRequest(request.method(), request.url());
+        return request.body().insert(message, new BodyInserter.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return ExchangeStrategies.withDefaults().messageWriters();
+            }
+
+            @Override
+            public Optional<ServerHttpRequest> serverRequest() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Map<String, Object> hints() {
+                return Map.of();
+            }
+        }).then(Mono.defer(message::getBodyAsString));
+    }
+
+    private static PaymentProperties webhookProperties(int maxAttempts) {
+        PaymentProperties properties = new PaymentProperties();
+        properties.getWebhook().setUrl("http://localhost/webhook");
+        properties.getWebhook().setSecret("secreto");
+        properties.getWebhook().setMaxAttempts(maxAttempts);
+        properties.getWebhook().setInitialBackoff(Duration.ofMillis(1));
+        properties.getWebhook().setMaxBackoff(Duration.ofMillis(5));
+        return properties;
+    }
+
+    private static Transaction approvedTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setCardNumber("4111111111111111");
+        transaction.setAmountMinor(50000);
+        transaction.setCurrency("USD");
+        transaction.setStatus(TransactionStatus.APPROVED);
+        return transaction;
+    }
+}
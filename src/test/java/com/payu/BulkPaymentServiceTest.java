@@ -0,0 +1,192 @@
+package com.payu;
+
+import com.payu.config.PaymentMetrics;
+import com.payu.config.PaymentProperties;
+import com.payu.config.PersistenceProperties;
+import com.payu.exception.BankDeclinedException;
+import com.payu.exception.BulkCapacityExceededException;
+import com.payu.exception.FraudException;
+import com.payu.model.BulkPaymentResult;
+import com.payu.model.BulkPaymentResult.Status;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import com.payu.repository.TransactionRepository;
+import com.payu.service.BankService;
+import com.payu.service.BulkPaymentService;
+import com.payu.service.PaymentService;
+import com.payu.service.TransactionJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkPaymentServiceTest {
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private BankService bankService;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionJournal transactionJournal;
+
+    private final PaymentProperties paymentProperties = new PaymentProperties();
+
+    private BulkPaymentService bulkPaymentService;
+
+    @BeforeEach
+    public void setUp() {
+        paymentProperties.getBulk().setBatchSize(2);
+        paymentProperties.getBulk().setFlushInterval(Duration.ofMillis(5));
+        paymentProperties.getBulk().setMaxConcurrentRequests(1);
+        bulkPaymentService = new BulkPaymentService(paymentService, bankService, transactionRepository, transactionJournal,
+                Schedulers.immediate(), new PaymentMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                Jackson2ObjectMapperBuilder.json().build(), paymentProperties, new PersistenceProperties());
+    }
+
+    @Test
+    public void testReadAcceptsJsonArrayAndNdjson() {
+        String payment = "{\"cardNumber\":\"4111111111111111\",\"cardHolderName\":\"Juan Pérez\",\"amount\":100,"
+                + "\"currency\":\"USD\",\"expirationDate\":\"2030-12\",\"cvv\":\"123\"}";
+
+        List<PaymentRequest> array = bulkPaymentService.read(stream("[" + payment + "," + payment + "]")).collectList().block();
+        List<PaymentRequest> ndjson = bulkPaymentService.read(stream(payment + "\n" + payment + "\n")).collectList().block();
+
+        assertEquals(2, array.size());
+        assertEquals(array, ndjson);
+        assertEquals(YearMonth.of(2030, 12), array.get(0).getExpirationDate());
+    }
+
+    @Test
+    public void testProcessReportsEachPaymentAndSavesApprovedInBatches() {
+        AtomicLong ids = new AtomicLong();
+        when(paymentService.authorizePaymentReactive(any())).thenAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            return switch (request.getCardHolderName()) {
+                case "Fraude" -> Mono.error(new FraudException("Transacción marcada como fraudulenta por el sistema antifraude."));
+                case "Rechazo" -> Mono.error(new BankDeclinedException("Fondos insuficientes."));
+                default -> Mono.just(new Transaction());
+            };
+        });
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> transaction.setId(ids.incrementAndGet()));
+            return transactions;
+        });
+
+        PaymentRequest invalid = paymentRequest("Juan Pérez");
+        invalid.setCvv("12");
+        List<BulkPaymentResult> results = bulkPaymentService.process(Flux.just(paymentRequest("Juan Pérez"),
+                        paymentRequest("Fraude"), invalid, paymentRequest("Rechazo"), paymentRequest("Ana Gómez"),
+                        paymentRequest("Luis Díaz")))
+                .collectList()
+                .block();
+
+        results.sort(Comparator.comparingLong(BulkPaymentResult::getIndex));
+        assertEquals(List.of(Status.APPROVED, Status.FRAUD, Status.INVALID, Status.DECLINED, Status.APPROVED, Status.APPROVED),
+                results.stream().map(BulkPaymentResult::getStatus).toList());
+        assertEquals("cvv: El CVV debe tener 3 o 4 dígitos.", results.get(2).getMessage());
+        assertNotNull(results.get(0).getTransaction().getId());
+        assertEquals(3, ids.get());
+        verify(paymentService, times(5)).authorizePaymentReactive(any());
+        verify(transactionRepository, atLeast(2)).saveAll(anyList());
+    }
+
+    @Test
+    public void testFailedSaveVoidsTheApprovedAuthorizations() {
+        AtomicLong authorizations = new AtomicLong();
+        when(paymentService.authorizePaymentReactive(any())).thenAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            if (request.getCardHolderName().equals("Fraude")) {
+                return Mono.error(new FraudException("Transacción marcada como fraudulenta por el sistema antifraude."));
+            }
+            Transaction transaction = new Transaction();
+            transaction.setBankTransactionId("bank-" + authorizations.incrementAndGet());
+            return Mono.just(transaction);
+        });
+        when(transactionRepository.saveAll(anyList())).thenThrow(new IllegalStateException("Base de datos caída"));
+        when(bankService.voidPaymentReactive(anyString())).thenReturn(Mono.empty());
+
+        List<BulkPaymentResult> results = bulkPaymentService.process(Flux.just(paymentRequest("Juan Pérez"),
+                        paymentRequest("Fraude")))
+                .collectList()
+                .block();
+
+        results.sort(Comparator.comparingLong(BulkPaymentResult::getIndex));
+        assertEquals(List.of(Status.ERROR, Status.FRAUD), results.stream().map(BulkPaymentResult::getStatus).toList());
+        verify(bankService).voidPaymentReactive("bank-1");
+        verifyNoMoreInteractions(bankService);
+    }
+
+    @Test
+    public void testStopsReadingAfterTheMaximumItems() {
+        paymentProperties.getBulk().setMaxItems(2);
+        when(paymentService.authorizePaymentReactive(any())).thenAnswer(invocation -> Mono.just(new Transaction()));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        AtomicLong read = new AtomicLong();
+
+        List<BulkPaymentResult> results = bulkPaymentService.process(Flux.range(0, 1000)
+                        .map(i -> paymentRequest("Juan Pérez"))
+                        .doOnNext(request -> read.incrementAndGet()))
+                .collectList()
+                .block();
+
+        results.sort(Comparator.comparingLong(BulkPaymentResult::getIndex));
+        assertEquals(List.of(Status.APPROVED, Status.APPROVED, Status.REJECTED),
+                results.stream().map(BulkPaymentResult::getStatus).toList());
+        assertEquals("El lote supera el máximo de 2 pagos.", results.get(2).getMessage());
+        assertEquals(3, read.get());
+    }
+
+    @Test
+    public void testRejectsBulkRequestsBeyondTheConcurrentLimit() {
+        Flux<BulkPaymentResult> first = bulkPaymentService.process(Flux.never());
+
+        assertThrows(BulkCapacityExceededException.class, () -> bulkPaymentService.process(Flux.empty()));
+
+        first.subscribe().dispose();
+        assertNotNull(bulkPaymentService.process(Flux.empty()).collectList().block());
+    }
+
+    private static PaymentRequest paymentRequest(String cardHolderName) {
+        PaymentRequest request = new PaymentRequest();
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName(cardHolderName);
+        request.setAmount(new BigDecimal("100.00"));
+        request.setCurrency("USD");
+        request.setExpirationDate(YearMonth.now().plusYears(2));
+        request.setCvv("123");
+        return request;
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,146 @@
+package com.payu;
+
+import com.payu.config.CardLedgerProperties;
+import com.payu.exception.CardLimitExceededException;
+import com.payu.model.Money;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+import com.payu.service.CardLedger;
+import com.payu.service.TransactionQueryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class CardLedgerTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private CardLedgerProperties properties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new CardLedgerProperties();
+        CardLedgerProperties.Limit usd = new CardLedgerProperties.Limit();
+        usd.setHourlyCount(3);
+        usd.setDailyAmount(new BigDecimal("1000.00"));
+        properties.getLimits().put("USD", usd);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testHourlyCountSlidesOutOfTheWindow() {
+        CardLedger ledger = newLedger(null);
+        long now = 1_000 * HOUR;
+
+        for (int i = 0; i < 3; i++) {
+            ledger.reserve(purchase("4111111111111111", "10.00", "USD"), now);
+        }
+        assertThrows(CardLimitExceededException.class, () -> ledger.reserve(purchase("4111111111111111", "10.00", "USD"), now));
+        // Otra tarjeta y otra moneda de la misma tarjeta llevan cuentas separadas
+        ledger.reserve(purchase("4012888888881881", "10.00", "USD"), now);
+        ledger.reserve(purchase("4111111111111111", "10.00", "EUR"), now);
+
+        ledger.reserve(purchase("4111111111111111", "10.00", "USD"), now + HOUR);
+        CardLedger.Usage usage = ledger.usage("4111111111111111", "USD", now + HOUR);
+        assertEquals(1, usage.hourlyCount());
+        assertEquals(4, usage.dailyCount());
+        assertEquals(0, new BigDecimal("40.00").compareTo(usage.dailyAmount()));
+        assertEquals(1.0, meterRegistry.get("payu.ledger.rejections").tag("limit", "HOURLY_COUNT").counter().count());
+    }
+
+    @Test
+    public void testReleaseAndRefundFreeDailyAmount() {
+        CardLedger ledger = newLedger(null);
+        long now = 1_000 * HOUR;
+        Transaction large = purchase("4111111111111111", "800.00", "USD");
+
+        long reservedAt = ledger.reserve(large, now);
+        assertThrows(CardLimitExceededException.class, () -> ledger.reserve(purchase("4111111111111111", "300.00", "USD"), now));
+
+        // Un pago rechazado devuelve su reserva
+        ledger.release(large, reservedAt);
+        ledger.reserve(purchase("4111111111111111", "300.00", "USD"), now + 1);
+        ledger.reserve(purchase("4111111111111111", "700.00", "USD"), now + 2);
+        assertThrows(CardLimitExceededException.class, () -> ledger.reserve(purchase("4111111111111111", "0.01", "USD"), now + 3));
+
+        // Pasado un día la ventana diaria queda vacía
+        ledger.reserve(purchase("4111111111111111", "900.00", "USD"), now + 24 * HOUR);
+        assertEquals(0, new BigDecimal("900.00").compareTo(ledger.usage("4111111111111111", "USD", now + 24 * HOUR).dailyAmount()));
+    }
+
+    @Test
+    public void testIdleCardsAreEvictedWhenFull() {
+        properties.setShards(1);
+        properties.setMaxCards(100);
+        CardLedger ledger = newLedger(null);
+        long now = 1_000 * HOUR;
+
+        for (int i = 0; i < 1_000; i++) {
+            ledger.reserve(purchase(String.format("4%015d", i), "1.00", "USD"), now + i);
+        }
+
+        assertEquals(100, ledger.size());
+        assertEquals(900.0, meterRegistry.get("payu.ledger.evictions").functionCounter().count());
+        // La tarjeta más reciente sigue en el libro con su cuenta intacta
+        assertEquals(1, ledger.usage(String.format("4%015d", 999), "USD", now + 1_000).hourlyCount());
+    }
+
+    @Test
+    public void testWarmUpLoadsRecentPurchasesNetOfRefunds() {
+        TransactionQueryService transactionQueryService = mock(TransactionQueryService.class);
+        doAnswer(invocation -> {
+            Consumer<Transaction> sink = invocation.getArgument(1);
+            sink.accept(purchase("4111111111111111", "600.00", "250.00", LocalDateTime.now().minusHours(3)));
+            sink.accept(purchase("4111111111111111", "300.00", "0.00", LocalDateTime.now().minusMinutes(5)));
+            return null;
+        }).when(transactionQueryService).export(any(), any());
+        CardLedger ledger = newLedger(transactionQueryService);
+
+        ledger.warmUp();
+
+        CardLedger.Usage usage = ledger.usage("4111111111111111", "USD");
+        assertEquals(1, usage.hourlyCount());
+        assertEquals(2, usage.dailyCount());
+        assertEquals(0, new BigDecimal("650.00").compareTo(usage.dailyAmount()));
+    }
+
+    private CardLedger newLedger(TransactionQueryService transactionQueryService) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new CardLedger(properties, transactionQueryService, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static Transaction purchase(String cardNumber, String amount, String currency) {
+        Transaction purchase = new Transaction();
+        purchase.setCardNumber(cardNumber);
+        purchase.setAmountMinor(Money.toMinor(new BigDecimal(amount), currency));
+        purchase.setCurrency(currency);
+        purchase.setType(TransactionType.PURCHASE);
+        return purchase;
+    }
+
+    private static Transaction purchase(String cardNumber, String amount, String refunded, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setCardNumber(cardNumber);
+        transaction.setAmountMinor(Money.toMinor(new BigDecimal(amount), "USD"));
+        transaction.setRefundedAmountMinor(Money.toMinor(new BigDecimal(refunded), "USD"));
+        transaction.setCurrency("USD");
+        transaction.setType(TransactionType.PURCHASE);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
@@ -0,0 +1,58 @@
+package com.payu;
+
+import com.payu.model.CardBrand;
+import com.payu.service.CardValidator;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardValidatorTest {
+
+    private final CardValidator cardValidator = new CardValidator();
+
+    @Test
+    public void testBrandOf_KnownBins() {
+        assertEquals(CardBrand.VISA, cardValidator.brandOf("4111111111111111"));
+        assertEquals(CardBrand.VISA, cardValidator.brandOf("4222222222222"));
+        assertEquals(CardBrand.MASTERCARD, cardValidator.brandOf("5555555555554444"));
+        assertEquals(CardBrand.MASTERCARD, cardValidator.brandOf("2223003122003222"));
+        assertEquals(CardBrand.AMEX, cardValidator.brandOf("378282246310005"));
+        assertEquals(CardBrand.DISCOVER, cardValidator.brandOf("6011111111111117"));
+        assertEquals(CardBrand.DINERS, cardValidator.brandOf("30569309025904"));
+        assertEquals(CardBrand.JCB, cardValidator.brandOf("3530111333300000"));
+    }
+
+    @Test
+    public void testIsValidCardNumber_Invalid() {
+        // Falla Luhn
+        assertFalse(cardValidator.isValidCardNumber("1234567890123456"));
+        // Separadores y caracteres no numéricos
+        assertFalse(cardValidator.isValidCardNumber("4111 1111 1111 1111"));
+        assertFalse(cardValidator.isValidCardNumber("4111-1111-1111-1111"));
+        // Pasa Luhn pero AMEX solo admite 15 dígitos
+        assertFalse(cardValidator.isValidCardNumber("3400000000000000"));
+        // Fuera del rango de longitudes
+        assertFalse(cardValidator.isValidCardNumber("4242424242"));
+        assertFalse(cardValidator.isValidCardNumber(""));
+        assertFalse(cardValidator.isValidCardNumber(null));
+    }
+
+    @Test
+    public void testIsValidCvv() {
+        assertTrue(cardValidator.isValidCvv("123"));
+        assertTrue(cardValidator.isValidCvv("1234"));
+        assertFalse(cardValidator.isValidCvv("12"));
+        assertFalse(cardValidator.isValidCvv("12345"));
+        assertFalse(cardValidator.isValidCvv("12a"));
+        assertFalse(cardValidator.isValidCvv(null));
+    }
+
+    @Test
+    public void testIsExpired() {
+        assertFalse(cardValidator.isExpired(YearMonth.now()));
+        assertFalse(cardValidator.isExpired(YearMonth.now().plusMonths(1)));
+        assertTrue(cardValidator.isExpired(YearMonth.now().minusMonths(1)));
+    }
+}
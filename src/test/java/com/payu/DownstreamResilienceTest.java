@@ -0,0 +1,165 @@
+package com.payu;
+
+import com.payu.config.CircuitBreakerTransitions;
+import com.payu.exception.BankDeclinedException;
+import com.payu.exception.DownstreamUnavailableException;
+import com.payu.model.PaymentRequest;
+import com.payu.service.AntiFraudService;
+import com.payu.service.BankService;
+import com.payu.service.FraudVerdictCache;
+import com.payu.service.SimulationService;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=18080",
+        "payu.http.clients.antifraud.response-timeout=100ms",
+        "resilience4j.circuitbreaker.instances.bank.sliding-window-size=4",
+        "resilience4j.circuitbreaker.instances.bank.minimum-number-of-calls=4",
+        "resilience4j.circuitbreaker.instances.bank.wait-duration-in-open-state=1m",
+        "resilience4j.circuitbreaker.instances.bank.automatic-transition-from-open-to-half-open-enabled=false",
+        "resilience4j.retry.instances.antifraud.wait-duration=10ms"
+})
+public class DownstreamResilienceTest {
+
+    @Autowired
+    private BankService bankService;
+
+    @Autowired
+    private AntiFraudService antiFraudService;
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private RetryRegistry retryRegistry;
+
+    @Autowired
+    private CircuitBreakerTransitions circuitBreakerTransitions;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private FraudVerdictCache fraudVerdictCache;
+
+    private PaymentRequest paymentRequest;
+
+    @BeforeEach
+    void setUp() {
+        paymentRequest = new PaymentRequest();
+        paymentRequest.setCardNumber("4111111111111111");
+        paymentRequest.setCardHolderName("Juan Pérez");
+        paymentRequest.setAmount(new BigDecimal("500.00"));
+        paymentRequest.setCurrency("USD");
+        paymentRequest.setExpirationDate(YearMonth.now().plusYears(2));
+        paymentRequest.setCvv("123");
+    }
+
+    @AfterEach
+    void resetFaults() {
+        simulationService.reset("bank");
+        simulationService.reset("antifraud");
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+        fraudVerdictCache.invalidateAll();
+    }
+
+    @Test
+    void bankFailuresOpenTheCircuitAndFailFast() {
+        simulationService.profile("bank").setErrorRate(1.0);
+
+        for (int i = 0; i < 4; i++) {
+            DownstreamUnavailableException exception = assertThrows(DownstreamUnavailableException.class,
+                    () -> bankService.processPayment(paymentRequest));
+            assertInstanceOf(WebClientResponseException.ServiceUnavailable.class, exception.getCause());
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("bank");
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1L, circuitBreakerTransitions.counts("bank").get("CLOSED_TO_OPEN"));
+
+        // Con el circuito abierto el banco ya no se consulta aunque se haya recuperado
+        simulationService.profile("bank").setErrorRate(0.0);
+        DownstreamUnavailableException exception = assertThrows(DownstreamUnavailableException.class,
+                () -> bankService.processPayment(paymentRequest));
+        assertInstanceOf(CallNotPermittedException.class, exception.getCause());
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/payments", paymentRequest, String.class);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("El servicio bancario no está disponible.", response.getBody());
+    }
+
+    @Test
+    void bankClientErrorsPassThroughWithoutOpeningTheCircuit() {
+        simulationService.profile("bank").setErrorRate(1.0);
+        simulationService.profile("bank").setErrorStatus(400);
+
+        for (int i = 0; i < 25; i++) {
+            assertThrows(WebClientResponseException.BadRequest.class, () -> bankService.processPayment(paymentRequest));
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("bank");
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/payments", paymentRequest, String.class);
+        assertEquals(HttpStatus.BAD_GATEWAY, response.getStatusCode());
+        assertEquals("Un servicio externo rechazó la solicitud.", response.getBody());
+    }
+
+    @Test
+    void invalidCurrencyIsRejectedBeforeCallingDownstream() {
+        long bankCalls = circuitBreakerRegistry.circuitBreaker("bank").getMetrics().getNumberOfBufferedCalls();
+        paymentRequest.setCurrency("USDX");
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/payments", paymentRequest, String.class);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertTrue(response.getBody().contains("La moneda debe ser un código ISO 4217."));
+        assertEquals(bankCalls, circuitBreakerRegistry.circuitBreaker("bank").getMetrics().getNumberOfBufferedCalls());
+    }
+
+    @Test
+    void slowAntiFraudTimesOutAndIsRetried() {
+        simulationService.profile("antifraud").setLatency(Duration.ofMillis(500));
+        long retriedBefore = retryRegistry.retry("antifraud").getMetrics().getNumberOfFailedCallsWithRetryAttempt();
+
+        DownstreamUnavailableException exception = assertThrows(DownstreamUnavailableException.class,
+                () -> antiFraudService.isFraudulent(paymentRequest));
+
+        assertInstanceOf(WebClientRequestException.class, exception.getCause());
+        assertEquals(retriedBefore + 1, retryRegistry.retry("antifraud").getMetrics().getNumberOfFailedCallsWithRetryAttempt());
+    }
+
+    @Test
+    void bankDeclinesDoNotCountAsFailures() {
+        paymentRequest.setCardNumber("4000000000000000");
+
+        for (int i = 0; i < 6; i++) {
+            assertThrows(BankDeclinedException.class, () -> bankService.processPayment(paymentRequest));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("bank").getState());
+    }
+}
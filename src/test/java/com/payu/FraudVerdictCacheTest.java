@@ -0,0 +1,92 @@
+package com.payu;
+
+import com.payu.config.FraudVerdictCacheProperties;
+import com.payu.model.PaymentRequest;
+import com.payu.service.CaffeineFraudVerdictCache;
+import com.payu.service.FraudVerdictCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FraudVerdictCacheTest {
+
+    private FraudVerdictCache fraudVerdictCache;
+
+    @BeforeEach
+    public void setUp() {
+        FraudVerdictCacheProperties properties = new FraudVerdictCacheProperties();
+        properties.setCleanTtl(Duration.ofMinutes(1));
+        fraudVerdictCache = new CaffeineFraudVerdictCache(properties, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    public void testAmountsInTheSameBucketShareTheVerdict() {
+        fraudVerdictCache.put(request("4111111111111111", "109.99", "USD"), false);
+
+        assertEquals(Boolean.FALSE, fraudVerdictCache.get(request("4111111111111111", "101.00", "USD")));
+        assertNull(fraudVerdictCache.get(request("4111111111111111", "110.00", "USD")));
+        assertNull(fraudVerdictCache.get(request("4111111111111111", "101.00", "EUR")));
+        assertNull(fraudVerdictCache.get(request("5555555555554444", "101.00", "USD")));
+
+        FraudVerdictCache.Stats stats = fraudVerdictCache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(3, stats.misses());
+    }
+
+    @Test
+    public void testCleanVerdictIsNotReusedForALargerAmount() {
+        // 1000.00 y 1005.00 caen en el mismo tramo, pero antifraude marca los importes mayores de 1000
+        fraudVerdictCache.put(request("4111111111111111", "1000.00", "USD"), false);
+
+        assertNull(fraudVerdictCache.get(request("4111111111111111", "1005.00", "USD")));
+        assertEquals(Boolean.FALSE, fraudVerdictCache.get(request("4111111111111111", "1000.00", "USD")));
+
+        // Y uno fraudulento no se reutiliza para un importe menor
+        fraudVerdictCache.put(request("4111111111111111", "1005.00", "USD"), true);
+
+        assertNull(fraudVerdictCache.get(request("4111111111111111", "1000.00", "USD")));
+        assertEquals(Boolean.TRUE, fraudVerdictCache.get(request("4111111111111111", "1009.99", "USD")));
+    }
+
+    @Test
+    public void testInvalidateCardOnlyRemovesThatCard() {
+        fraudVerdictCache.put(request("4111111111111111", "1500.00", "USD"), true);
+        fraudVerdictCache.put(request("4111111111111111", "20.00", "USD"), false);
+        fraudVerdictCache.put(request("5555555555554444", "1500.00", "USD"), true);
+
+        fraudVerdictCache.invalidateCard("4111111111111111");
+
+        assertNull(fraudVerdictCache.get(request("4111111111111111", "1500.00", "USD")));
+        assertNull(fraudVerdictCache.get(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Boolean.TRUE, fraudVerdictCache.get(request("5555555555554444", "1500.00", "USD")));
+    }
+
+    @Test
+    public void testCleanVerdictsExpireBeforeFraudVerdicts() throws InterruptedException {
+        FraudVerdictCacheProperties properties = new FraudVerdictCacheProperties();
+        properties.setCleanTtl(Duration.ofMillis(50));
+        properties.setFraudTtl(Duration.ofMinutes(1));
+        FraudVerdictCache cache = new CaffeineFraudVerdictCache(properties, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        cache.put(request("4111111111111111", "20.00", "USD"), false);
+        cache.put(request("4111111111111111", "1500.00", "USD"), true);
+
+        Thread.sleep(100);
+
+        assertNull(cache.get(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Boolean.TRUE, cache.get(request("4111111111111111", "1500.00", "USD")));
+    }
+
+    private PaymentRequest request(String cardNumber, String amount, String currency) {
+        PaymentRequest request = new PaymentRequest();
+        request.setCardNumber(cardNumber);
+        request.setAmount(new BigDecimal(amount));
+        request.setCurrency(currency);
+        return request;
+    }
+}
@@ -0,0 +1,256 @@
+package com.payu;
+
+import com.payu.config.IdempotencyProperties;
+import com.payu.exception.BankDeclinedException;
+import com.payu.exception.DownstreamUnavailableException;
+import com.payu.exception.IdempotencyKeyConflictException;
+import com.payu.exception.PaymentNotConfirmedException;
+import com.payu.model.IdempotencyRecord;
+import com.payu.model.PaymentRequest;
+import com.payu.model.Transaction;
+import com.payu.repository.IdempotencyRecordRepository;
+import com.payu.service.IdempotencyService;
+import com.payu.service.TransactionQueryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private TransactionQueryService transactionQueryService;
+
+    private IdempotencyService idempotencyService;
+
+    private PaymentRequest paymentRequest;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    public void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, transactionQueryService,
+                Schedulers.immediate(), properties(), new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+        paymentRequest = new PaymentRequest();
+        paymentRequest.setCardNumber("4111111111111111");
+        paymentRequest.setCardHolderName("Juan Pérez");
+        paymentRequest.setAmount(new BigDecimal("500.00"));
+        paymentRequest.setCurrency("USD");
+        paymentRequest.setExpirationDate(YearMonth.now().plusYears(2));
+        paymentRequest.setCvv("123");
+
+        transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setAmountMinor(50000);
+    }
+
+    @Test
+    public void testRetryReturnsStoredResultWithoutPayingAgain() {
+        AtomicInteger payments = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            Transaction result = idempotencyService.execute("key-1", paymentRequest,
+                    () -> Mono.fromCallable(() -> {
+                        payments.incrementAndGet();
+                        return transaction;
+                    })).block();
+            assertSame(transaction, result);
+        }
+
+        assertEquals(1, payments.get());
+        verify(idempotencyRecordRepository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    public void testConcurrentDuplicatesShareTheInFlightPayment() {
+        Sinks.One<Transaction> bank = Sinks.one();
+        AtomicInteger payments = new AtomicInteger();
+
+        Mono<Transaction> first = idempotencyService.execute("key-1", paymentRequest, () -> {
+            payments.incrementAndGet();
+            return bank.asMono();
+        });
+        Mono<Transaction> duplicate = idempotencyService.execute("key-1", paymentRequest, () -> {
+            payments.incrementAndGet();
+            return bank.asMono();
+        });
+
+        StepVerifier.create(Mono.zip(first, duplicate))
+                .then(() -> bank.tryEmitValue(transaction))
+                .assertNext(results -> {
+                    assertSame(transaction, results.getT1());
+                    assertSame(transaction, results.getT2());
+                })
+                .verifyComplete();
+        assertEquals(1, payments.get());
+    }
+
+    @Test
+    public void testCancelledCallerDoesNotCancelThePayment() {
+        Sinks.One<Transaction> bank = Sinks.one();
+        AtomicInteger payments = new AtomicInteger();
+        AtomicInteger cancellations = new AtomicInteger();
+
+        // El cliente que inició el pago se desconecta antes de que responda el banco
+        idempotencyService.execute("key-1", paymentRequest, () -> {
+            payments.incrementAndGet();
+            return bank.asMono().doOnCancel(cancellations::incrementAndGet);
+        }).subscribe().dispose();
+
+        Mono<Transaction> retry = idempotencyService.execute("key-1", paymentRequest, () -> {
+            payments.incrementAndGet();
+            return Mono.just(new Transaction());
+        });
+
+        StepVerifier.create(retry)
+                .then(() -> bank.tryEmitValue(transaction))
+                .expectNext(transaction)
+                .verifyComplete();
+        assertEquals(1, payments.get());
+        assertEquals(0, cancellations.get());
+        verify(idempotencyRecordRepository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    public void testReusedKeyWithDifferentRequestIsRejected() {
+        idempotencyService.execute("key-1", paymentRequest, () -> Mono.just(transaction)).block();
+
+        paymentRequest.setAmount(new BigDecimal("900.00"));
+
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest, () -> Mono.just(transaction)))
+                .expectError(IdempotencyKeyConflictException.class)
+                .verify();
+    }
+
+    @Test
+    public void testFailedPaymentReleasesTheKey() {
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest,
+                        () -> Mono.error(new DownstreamUnavailableException("El servicio bancario no está disponible.", null))))
+                .expectError(DownstreamUnavailableException.class)
+                .verify();
+
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest, () -> Mono.just(transaction)))
+                .expectNext(transaction)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testDeclinedPaymentIsRememberedWithoutAskingTheBankAgain() {
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest,
+                        () -> Mono.error(new BankDeclinedException("Pago rechazado."))))
+                .expectError(BankDeclinedException.class)
+                .verify();
+
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest,
+                        () -> Mono.error(new AssertionError("El pago no debe repetirse"))))
+                .expectErrorMessage("Pago rechazado.")
+                .verify();
+    }
+
+    @Test
+    public void testUnconfirmedPaymentKeepsTheKeyUntilItIsSaved() {
+        CompletableFuture<Transaction> saved = new CompletableFuture<>();
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest,
+                        () -> Mono.error(new PaymentNotConfirmedException("Tiempo de espera agotado.", saved))))
+                .expectError(PaymentNotConfirmedException.class)
+                .verify();
+
+        // El reintento espera al guardado en curso en lugar de cobrar otra vez
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest,
+                        () -> Mono.error(new AssertionError("El pago no debe repetirse"))))
+                .then(() -> saved.complete(transaction))
+                .expectNext(transaction)
+                .verifyComplete();
+        assertEquals(1L, captureSavedRecord().getTransactionId());
+    }
+
+    @Test
+    public void testUnconfirmedPaymentThatIsNotSavedReleasesTheKey() {
+        CompletableFuture<Transaction> saved = new CompletableFuture<>();
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest,
+                        () -> Mono.error(new PaymentNotConfirmedException("Tiempo de espera agotado.", saved))))
+                .expectError(PaymentNotConfirmedException.class)
+                .verify();
+
+        // El guardado falla y la autorización se anula: el pago puede repetirse
+        saved.completeExceptionally(new IllegalStateException("Lote perdido"));
+        StepVerifier.create(idempotencyService.execute("key-1", paymentRequest, () -> Mono.just(transaction)))
+                .expectNext(transaction)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testKeyFoundOnlyInTableReplaysTheTransaction() {
+        // Primera ejecución para obtener el hash de la solicitud tal como se persiste
+        IdempotencyService other = new IdempotencyService(idempotencyRecordRepository, transactionQueryService,
+                Schedulers.immediate(), properties(), new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        other.execute("key-1", paymentRequest, () -> Mono.just(transaction)).block();
+        IdempotencyRecord record = captureSavedRecord();
+        record.setCreatedAt(LocalDateTime.now());
+
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(record));
+        when(transactionQueryService.findSaved(1L)).thenReturn(Optional.of(transaction));
+
+        Transaction result = idempotencyService.execute("key-1", paymentRequest,
+                () -> Mono.error(new AssertionError("El pago no debe repetirse"))).block();
+
+        assertSame(transaction, result);
+    }
+
+    @Test
+    public void testRequestHashIsKeyedAndIgnoresCardSecrets() {
+        idempotencyService.execute("key-1", paymentRequest, () -> Mono.just(transaction)).block();
+        String requestHash = captureSavedRecord().getRequestHash();
+
+        // Otro secreto produce otra huella para la misma solicitud
+        IdempotencyProperties otherSecret = properties();
+        otherSecret.setHashSecret("otro-secreto");
+        IdempotencyService other = new IdempotencyService(idempotencyRecordRepository, transactionQueryService,
+                Schedulers.immediate(), otherSecret, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        other.execute("key-2", paymentRequest, () -> Mono.just(transaction)).block();
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository, times(2)).save(captor.capture());
+        assertNotEquals(requestHash, captor.getAllValues().get(1).getRequestHash());
+
+        // El CVV y la expiración no forman parte de la huella: el reintento no es un conflicto
+        paymentRequest.setCvv("999");
+        paymentRequest.setExpirationDate(YearMonth.now().plusYears(3));
+        assertSame(transaction, idempotencyService.execute("key-1", paymentRequest,
+                () -> Mono.error(new AssertionError("El pago no debe repetirse"))).block());
+    }
+
+    private static IdempotencyProperties properties() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setHashSecret("secreto-de-prueba");
+        return properties;
+    }
+
+    private IdempotencyRecord captureSavedRecord() {
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).save(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,109 @@
+package com.payu;
+
+import com.payu.config.PersistenceProperties;
+import com.payu.model.Money;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+import com.payu.repository.TransactionRepository;
+import com.payu.service.JournalProjection;
+import com.payu.service.TransactionJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "payu.persistence.mode=JOURNAL",
+        "payu.persistence.journal.fsync=false",
+        "payu.persistence.write-behind.flush-interval=500ms"
+})
+public class JournalProjectionTest {
+
+    // Transacciones escritas en el diario antes de arrancar que la base no tiene
+    private static final List<Long> journaled = new ArrayList<>();
+
+    @Autowired
+    private TransactionJournal transactionJournal;
+
+    @Autowired
+    private JournalProjection journalProjection;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("payu-journal");
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setMode(PersistenceProperties.Mode.JOURNAL);
+        properties.getJournal().setDirectory(directory.toString());
+        properties.getJournal().setFsync(false);
+        TransactionJournal journal = new TransactionJournal(properties, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        journal.replay(transaction -> {
+        });
+        journal.start((transactions, position) -> {
+        });
+        journaled.add(journal.append(purchase("100.00")).join().getId());
+        journaled.add(journal.append(purchase("200.00")).join().getId());
+        try {
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        registry.add("payu.persistence.journal.directory", directory::toString);
+    }
+
+    @Test
+    void startupInsertsJournaledTransactionsMissingFromTheDatabase() {
+        journaled.forEach(id -> assertTrue(transactionRepository.existsById(id), "Falta la transacción " + id));
+        assertTrue(checkpoint() > 0);
+    }
+
+    @Test
+    void committedPurchaseCanBeAwaitedUntilItIsProjected() throws InterruptedException {
+        long before = checkpoint();
+        Transaction purchase = transactionJournal.append(purchase("300.00")).join();
+
+        // La escritura diferida espera flush-interval: la compra confirmada aún no está en la base
+        assertFalse(transactionRepository.existsById(purchase.getId()));
+        assertTrue(journalProjection.awaitProjected(purchase.getId()));
+        assertTrue(transactionRepository.existsById(purchase.getId()));
+
+        for (int i = 0; i < 50 && checkpoint() == before; i++) {
+            Thread.sleep(20);
+        }
+        assertNotEquals(before, checkpoint());
+    }
+
+    private long checkpoint() {
+        return jdbcTemplate.queryForObject("SELECT segment_offset FROM journal_projection_checkpoint WHERE id = 1", Long.class);
+    }
+
+    private static Transaction purchase(String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setCardNumber("4111111111111111");
+        transaction.setAmountMinor(Money.toMinor(new BigDecimal(amount), "USD"));
+        transaction.setCurrency("USD");
+        transaction.setType(TransactionType.PURCHASE);
+        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setBankTransactionId("bank-journal");
+        return transaction;
+    }
+}
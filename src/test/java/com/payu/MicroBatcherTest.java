@@ -0,0 +1,84 @@
+package com.payu;
+
+import com.payu.service.MicroBatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MicroBatcherTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    private MicroBatcher<Integer, Integer> batcher;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        batcher.close();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneCallAndGetTheirOwnResult() {
+        batcher = new MicroBatcher<>("test-batcher", 64, Duration.ofMillis(200), 1_000, this::doubled, IllegalStateException::new);
+
+        List<Integer> results = Flux.range(0, 10)
+                .flatMap(batcher::submit)
+                .collectSortedList()
+                .block();
+
+        assertEquals(IntStream.range(0, 10).map(i -> i * 2).boxed().toList(), results);
+        assertEquals(List.of(10), batchSizes);
+    }
+
+    @Test
+    public void testBatchesAreCappedAtMaxBatchSize() {
+        batcher = new MicroBatcher<>("test-batcher", 64, Duration.ofMillis(50), 1_000, this::doubled, IllegalStateException::new);
+
+        List<Integer> results = Flux.range(0, 130)
+                .flatMap(batcher::submit, 256)
+                .collectList()
+                .block();
+
+        assertEquals(130, results.size());
+        assertEquals(130, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 64), batchSizes.toString());
+    }
+
+    @Test
+    public void testFailedCallFailsEveryWaitingRequest() {
+        batcher = new MicroBatcher<>("test-batcher", 64, Duration.ofMillis(50), 1_000,
+                items -> Mono.error(new IllegalArgumentException("lote rechazado")), IllegalStateException::new);
+
+        List<Throwable> errors = Flux.range(0, 5)
+                .flatMap(item -> batcher.submit(item).then(Mono.<Throwable>empty()).onErrorResume(Mono::just))
+                .collectList()
+                .block();
+
+        assertEquals(5, errors.size());
+        errors.forEach(error -> assertEquals("lote rechazado", error.getMessage()));
+    }
+
+    @Test
+    public void testClosedBatcherRejectsSubmissions() throws InterruptedException {
+        batcher = new MicroBatcher<>("test-batcher", 64, Duration.ofMillis(50), 1_000, this::doubled, IllegalStateException::new);
+        assertEquals(2, batcher.submit(1).block(Duration.ofSeconds(5)));
+
+        batcher.close();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> batcher.submit(2).block(Duration.ofSeconds(5)));
+        assertEquals("El agrupador de solicitudes está cerrado.", error.getCause().getMessage());
+    }
+
+    private Mono<List<Integer>> doubled(List<Integer> items) {
+        batchSizes.add(items.size());
+        return Mono.just(items.stream().map(item -> item * 2).toList());
+    }
+}
@@ -0,0 +1,81 @@
+package com.payu;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payu.model.Money;
+import com.payu.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    public void testToMinor_UsesCurrencyScale() {
+        assertEquals(50000, Money.toMinor(new BigDecimal("500.00"), "USD"));
+        assertEquals(50000, Money.toMinor(new BigDecimal("500"), "USD"));
+        assertEquals(500, Money.toMinor(new BigDecimal("500"), "JPY"));
+        assertEquals(1500, Money.toMinor(new BigDecimal("1.5"), "KWD"));
+        // Sin decimales definidos en ISO 4217 o desconocida: dos decimales
+        assertEquals(150, Money.toMinor(new BigDecimal("1.5"), "XXX"));
+        assertEquals(150, Money.toMinor(new BigDecimal("1.5"), "ABC"));
+    }
+
+    @Test
+    public void testToMinor_RejectsDecimalsTheCurrencyDoesNotHave() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> Money.toMinor(new BigDecimal("10.5"), "JPY"));
+
+        assertEquals("El monto 10.5 no es válido para la moneda JPY.", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinor(new BigDecimal("100.001"), "USD"));
+        assertEquals(10000, Money.toMinor(new BigDecimal("100.000"), "USD"));
+    }
+
+    @Test
+    public void testRequireConvertible_MatchesToMinor() {
+        Money.requireConvertible(new BigDecimal("500.00"), "USD");
+        Money.requireConvertible(new BigDecimal("100.000"), "USD");
+        Money.requireConvertible(new BigDecimal("500"), "JPY");
+        assertThrows(IllegalArgumentException.class, () -> Money.requireConvertible(new BigDecimal("10.5"), "JPY"));
+        assertThrows(IllegalArgumentException.class, () -> Money.requireConvertible(new BigDecimal("100.001"), "USD"));
+        assertThrows(IllegalArgumentException.class, () -> Money.requireConvertible(new BigDecimal("1E+20"), "USD"));
+    }
+
+    @Test
+    public void testToDecimal_RoundTrip() {
+        assertEquals(new BigDecimal("500.00"), Money.toDecimal(50000, "USD"));
+        assertEquals(new BigDecimal("-200.00"), Money.toDecimal(-20000, "USD"));
+        assertEquals(new BigDecimal("500"), Money.toDecimal(500, "JPY"));
+        assertEquals(new BigDecimal("1.500"), Money.toDecimal(1500, "KWD"));
+    }
+
+    @Test
+    public void testTransactionJson_KeepsDecimalAmounts() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setCurrency("USD");
+        transaction.setAmountMinor(50000);
+        transaction.setRefundedAmountMinor(12345);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        String json = objectMapper.writeValueAsString(transaction);
+
+        assertEquals("{\"id\":1,\"cardNumber\":null,\"amount\":500.00,\"currency\":\"USD\",\"type\":null,\"status\":\"APPROVED\",\"timestamp\":null,"
+                + "\"originalTransactionId\":null,\"bankTransactionId\":null,\"refundedAmount\":123.45}", json);
+    }
+
+    @Test
+    public void testTransactionJson_RoundTripsAmounts() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        // La moneda llega después de los montos
+        Transaction transaction = objectMapper.readValue("{\"id\":1,\"amount\":500,\"refundedAmount\":1.5,\"currency\":\"KWD\"}",
+                Transaction.class);
+
+        assertEquals(500000, transaction.getAmountMinor());
+        assertEquals(1500, transaction.getRefundedAmountMinor());
+        assertEquals(new BigDecimal("500.000"), transaction.getAmount());
+    }
+}
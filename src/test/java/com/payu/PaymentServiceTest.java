@@ -1,28 +1,50 @@
 package com.payu;
 
+import com.payu.config.CardLedgerProperties;
+import com.payu.config.PaymentMetrics;
+import com.payu.config.PaymentProperties;
+import com.payu.config.PersistenceProperties;
 import com.payu.exception.BankDeclinedException;
 import com.payu.exception.FraudException;
+import com.payu.exception.PaymentNotConfirmedException;
 import com.payu.exception.TransactionNotFoundException;
 import com.payu.model.BankResponse;
 import com.payu.model.PaymentRequest;
 import com.payu.model.RefundRequest;
 import com.payu.model.Transaction;
+import com.payu.model.TransactionStatus;
 import com.payu.model.TransactionType;
 import com.payu.repository.TransactionRepository;
 import com.payu.service.AntiFraudService;
 import com.payu.service.BankService;
+import com.payu.service.CardLedger;
+import com.payu.service.CardValidator;
 import com.payu.service.PaymentService;
+import com.payu.service.TransactionWriteBehind;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +61,24 @@ public class PaymentServiceTest {
     @Mock
     private BankService bankService;
 
+    @Spy
+    private PaymentProperties paymentProperties = new PaymentProperties();
+
+    @Spy
+    private CardValidator cardValidator = new CardValidator();
+
+    @Spy
+    private PersistenceProperties persistenceProperties = new PersistenceProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PaymentMetrics paymentMetrics = new PaymentMetrics(meterRegistry, observationRegistry(meterRegistry));
+
+    @Spy
+    private CardLedger cardLedger = new CardLedger(new CardLedgerProperties(), null,
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -53,12 +93,14 @@ public class PaymentServiceTest {
         validPaymentRequest.setCardHolderName("Juan Pérez");
         validPaymentRequest.setAmount(new BigDecimal("500.00"));
         validPaymentRequest.setCurrency("USD");
-        validPaymentRequest.setExpirationDate(YearMonth.of(2025, 12));
+        validPaymentRequest.setExpirationDate(YearMonth.now().plusYears(2));
         validPaymentRequest.setCvv("123");
 
         validRefundRequest = new RefundRequest();
         validRefundRequest.setOriginalTransactionId(1L);
         validRefundRequest.setAmount(new BigDecimal("200.00"));
+
+        ReflectionTestUtils.setField(paymentService, "persistenceScheduler", Schedulers.immediate());
     }
 
     @Test
@@ -74,7 +116,7 @@ public class PaymentServiceTest {
         Transaction savedTransaction = new Transaction();
         savedTransaction.setId(1L);
         savedTransaction.setCardNumber(validPaymentRequest.getCardNumber());
-        savedTransaction.setAmount(validPaymentRequest.getAmount());
+        savedTransaction.setAmountMinor(50000);
         savedTransaction.setCurrency(validPaymentRequest.getCurrency());
         savedTransaction.setType(TransactionType.PURCHASE);
         savedTransaction.setTimestamp(LocalDateTime.now());
@@ -97,6 +139,24 @@ public class PaymentServiceTest {
         verify(transactionRepository).save(any(Transaction.class));
     }
 
+    @Test
+    public void testProcessPayment_RecordsStageTimers() {
+        when(antiFraudService.isFraudulent(validPaymentRequest)).thenReturn(false);
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        when(bankService.processPayment(validPaymentRequest)).thenReturn(bankResponse);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        paymentService.processPayment(validPaymentRequest);
+
+        for (String stage : new String[]{"validation", "antifraud", "bank", "persist"}) {
+            assertEquals(1, meterRegistry.get("payu.payment.stage")
+                    .tags("operation", "payment", "stage", stage, "result", "success")
+                    .timer().count(), stage);
+        }
+    }
+
     @Test
     public void testProcessPayment_FraudulentTransaction() {
         // Configurar el comportamiento simulado
@@ -132,19 +192,126 @@ public class PaymentServiceTest {
         verify(transactionRepository, never()).save(any());
     }
 
+    @Test
+    public void testCompletePayment_FailedStatusUpdateVoidsApproval() {
+        PaymentService.PendingPayment pending = pendingPayment();
+        when(transactionRepository.completePending(eq(1L), eq(TransactionStatus.APPROVED), eq("bank-tx-123")))
+                .thenThrow(new IllegalStateException("Base de datos caída"));
+
+        assertThrows(IllegalStateException.class, () -> paymentService.completePayment(validPaymentRequest, pending));
+
+        verify(bankService).voidPayment("bank-tx-123");
+        verify(cardLedger).release(pending.transaction(), pending.reservedAt());
+    }
+
+    @Test
+    public void testCompletePayment_NoLongerPendingVoidsApproval() {
+        PaymentService.PendingPayment pending = pendingPayment();
+        when(transactionRepository.completePending(eq(1L), eq(TransactionStatus.APPROVED), eq("bank-tx-123"))).thenReturn(0);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> paymentService.completePayment(validPaymentRequest, pending));
+
+        assertEquals("La transacción 1 ya no está pendiente.", exception.getMessage());
+        verify(bankService).voidPayment("bank-tx-123");
+        verify(cardLedger).release(pending.transaction(), pending.reservedAt());
+    }
+
+    @Test
+    public void testProcessPayment_FailedSaveVoidsAuthorization() {
+        stubApprovedPayment();
+        IllegalStateException failure = new IllegalStateException("Base de datos caída");
+        when(transactionRepository.save(any(Transaction.class))).thenThrow(failure);
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> paymentService.processPayment(validPaymentRequest)));
+
+        verify(bankService).voidPayment("bank-tx-123");
+        verify(cardLedger).release(any(Transaction.class), anyLong());
+    }
+
+    @Test
+    public void testProcessPayment_FailedSaveThatCannotBeVoidedIsNotRetriable() {
+        stubApprovedPayment();
+        when(transactionRepository.save(any(Transaction.class))).thenThrow(new IllegalStateException("Base de datos caída"));
+        when(bankService.voidPayment("bank-tx-123")).thenThrow(new IllegalStateException("Banco caído"));
+
+        PaymentNotConfirmedException exception = assertThrows(PaymentNotConfirmedException.class,
+                () -> paymentService.processPayment(validPaymentRequest));
+
+        assertNull(exception.getSaved());
+    }
+
+    @Test
+    public void testProcessPayment_UnconfirmedSaveIsVoidedOnlyIfItFails() {
+        stubApprovedPayment();
+        persistenceProperties.setMode(PersistenceProperties.Mode.WRITE_BEHIND);
+        persistenceProperties.setAckTimeout(Duration.ofMillis(10));
+        TransactionWriteBehind transactionWriteBehind = mock(TransactionWriteBehind.class);
+        CompletableFuture<Transaction> flushed = new CompletableFuture<>();
+        when(transactionWriteBehind.enqueue(any(Transaction.class))).thenReturn(flushed);
+        ReflectionTestUtils.setField(paymentService, "transactionWriteBehind", transactionWriteBehind);
+
+        PaymentNotConfirmedException exception = assertThrows(PaymentNotConfirmedException.class,
+                () -> paymentService.processPayment(validPaymentRequest));
+
+        // La transacción aún puede guardarse: la autorización se mantiene
+        verify(bankService, never()).voidPayment(any());
+        flushed.completeExceptionally(new IllegalStateException("Lote perdido"));
+        assertTrue(exception.getSaved().isCompletedExceptionally());
+        verify(bankService).voidPayment("bank-tx-123");
+        verify(cardLedger).release(any(Transaction.class), anyLong());
+    }
+
+    @Test
+    public void testProcessPaymentReactive_FailedSaveVoidsAuthorization() {
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(false));
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        when(bankService.processPaymentReactive(validPaymentRequest)).thenReturn(Mono.just(bankResponse));
+        when(transactionRepository.save(any(Transaction.class))).thenThrow(new IllegalStateException("Base de datos caída"));
+
+        StepVerifier.create(paymentService.processPaymentReactive(validPaymentRequest))
+                .expectErrorMessage("Base de datos caída")
+                .verify();
+
+        verify(bankService).voidPayment("bank-tx-123");
+        verify(cardLedger).release(any(Transaction.class), anyLong());
+    }
+
+    private void stubApprovedPayment() {
+        when(antiFraudService.isFraudulent(validPaymentRequest)).thenReturn(false);
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        when(bankService.processPayment(validPaymentRequest)).thenReturn(bankResponse);
+    }
+
+    private PaymentService.PendingPayment pendingPayment() {
+        stubApprovedPayment();
+
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setCardNumber(validPaymentRequest.getCardNumber());
+        transaction.setAmountMinor(50000);
+        transaction.setCurrency(validPaymentRequest.getCurrency());
+        transaction.setStatus(TransactionStatus.PENDING);
+        return new PaymentService.PendingPayment(transaction, cardLedger.reserve(transaction));
+    }
+
     @Test
     public void testProcessRefund_Success() {
         // Configurar la transacción original
         Transaction originalTransaction = new Transaction();
         originalTransaction.setId(1L);
-        originalTransaction.setAmount(new BigDecimal("500.00"));
+        originalTransaction.setAmountMinor(50000);
         originalTransaction.setCurrency("USD");
         originalTransaction.setType(TransactionType.PURCHASE);
         originalTransaction.setCardNumber("4111111111111111");
 
         when(transactionRepository.findById(1L)).thenReturn(Optional.of(originalTransaction));
 
-        when(transactionRepository.sumRefundsByOriginalTransactionId(1L)).thenReturn(new BigDecimal("100.00"));
+        when(transactionRepository.reserveRefund(1L, 20000)).thenReturn(1);
 
         BankResponse bankResponse = new BankResponse();
         bankResponse.setStatus("REFUNDED");
@@ -153,7 +320,7 @@ public class PaymentServiceTest {
 
         Transaction refundTransaction = new Transaction();
         refundTransaction.setId(2L);
-        refundTransaction.setAmount(validRefundRequest.getAmount().negate());
+        refundTransaction.setAmountMinor(-20000);
         refundTransaction.setCurrency(originalTransaction.getCurrency());
         refundTransaction.setType(TransactionType.REFUND);
         refundTransaction.setOriginalTransactionId(originalTransaction.getId());
@@ -196,17 +363,16 @@ public class PaymentServiceTest {
         // Configurar la transacción original
         Transaction originalTransaction = new Transaction();
         originalTransaction.setId(1L);
-        originalTransaction.setAmount(new BigDecimal("500.00"));
+        originalTransaction.setAmountMinor(50000);
         originalTransaction.setCurrency("USD");
         originalTransaction.setType(TransactionType.PURCHASE);
         originalTransaction.setCardNumber("4111111111111111");
 
         when(transactionRepository.findById(1L)).thenReturn(Optional.of(originalTransaction));
 
-        when(transactionRepository.sumRefundsByOriginalTransactionId(1L)).thenReturn(new BigDecimal("300.00"));
-
         // Ajustar el monto del reembolso para exceder el disponible
         validRefundRequest.setAmount(new BigDecimal("250.00"));
+        when(transactionRepository.reserveRefund(1L, 25000)).thenReturn(0);
 
         // Ejecutar y verificar que se lanza la excepción IllegalArgumentException
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -220,6 +386,25 @@ public class PaymentServiceTest {
         verify(transactionRepository, never()).save(any());
     }
 
+    @Test
+    public void testProcessRefund_BankDeclinedReleasesReservedAmount() {
+        Transaction originalTransaction = new Transaction();
+        originalTransaction.setId(1L);
+        originalTransaction.setAmountMinor(50000);
+        originalTransaction.setCurrency("USD");
+        originalTransaction.setType(TransactionType.PURCHASE);
+
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(originalTransaction));
+        when(transactionRepository.reserveRefund(1L, 20000)).thenReturn(1);
+        when(bankService.processRefund(validRefundRequest)).thenThrow(new BankDeclinedException("Reembolso rechazado."));
+
+        assertThrows(BankDeclinedException.class, () -> paymentService.processRefund(validRefundRequest));
+
+        // El monto reservado vuelve al saldo disponible
+        verify(transactionRepository).releaseRefund(1L, 20000);
+        verify(transactionRepository, never()).save(any());
+    }
+
     @Test
     public void testProcessPayment_InvalidCardNumber() {
         // Ajustar el número de tarjeta a uno inválido
@@ -273,4 +458,136 @@ public class PaymentServiceTest {
         verify(bankService, never()).processPayment(any());
         verify(transactionRepository, never()).save(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testProcessPayment_InvalidCurrency() {
+        // Código de cuatro letras: no cabe en el diario ni en la columna currency
+        validPaymentRequest.setCurrency("USDX");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            paymentService.processPayment(validPaymentRequest);
+        });
+
+        assertEquals("La moneda debe ser un código ISO 4217.", exception.getMessage());
+        verify(antiFraudService, never()).isFraudulent(any());
+        verify(bankService, never()).processPayment(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testProcessPaymentReactive_Success() {
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(false));
+
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        when(bankService.processPaymentReactive(validPaymentRequest)).thenReturn(Mono.just(bankResponse));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(paymentService.processPaymentReactive(validPaymentRequest))
+                .assertNext(result -> {
+                    assertEquals(TransactionType.PURCHASE, result.getType());
+                    assertEquals(validPaymentRequest.getAmount(), result.getAmount());
+                    assertEquals("bank-tx-123", result.getBankTransactionId());
+                })
+                .verifyComplete();
+
+        // El flujo reactivo no debe usar las variantes bloqueantes
+        verify(antiFraudService, never()).isFraudulent(any());
+        verify(bankService, never()).processPayment(any());
+    }
+
+    @Test
+    public void testProcessPaymentReactive_FraudulentTransaction() {
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(paymentService.processPaymentReactive(validPaymentRequest))
+                .expectErrorMatches(error -> error instanceof FraudException
+                        && "Transacción marcada como fraudulenta por el sistema antifraude.".equals(error.getMessage()))
+                .verify();
+
+        verify(bankService, never()).processPaymentReactive(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testProcessPayment_SpeculativeClean() {
+        paymentProperties.setPipeline(PaymentProperties.Pipeline.SPECULATIVE);
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(false));
+
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        when(bankService.processPaymentReactive(validPaymentRequest)).thenReturn(Mono.just(bankResponse));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction result = paymentService.processPayment(validPaymentRequest);
+
+        assertEquals("bank-tx-123", result.getBankTransactionId());
+        verify(bankService, never()).voidPaymentReactive(any());
+    }
+
+    @Test
+    public void testProcessPayment_SpeculativeFraudVoidsAuthorization() {
+        paymentProperties.setPipeline(PaymentProperties.Pipeline.SPECULATIVE);
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(true));
+
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        when(bankService.processPaymentReactive(validPaymentRequest)).thenReturn(Mono.just(bankResponse));
+
+        BankResponse voidResponse = new BankResponse();
+        voidResponse.setStatus("VOIDED");
+        voidResponse.setTransactionId("bank-tx-123");
+        when(bankService.voidPaymentReactive("bank-tx-123")).thenReturn(Mono.just(voidResponse));
+
+        assertThrows(FraudException.class, () -> paymentService.processPayment(validPaymentRequest));
+
+        // La autorización especulativa se anula y la transacción no se guarda
+        verify(bankService).voidPaymentReactive("bank-tx-123");
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testProcessPayment_SpeculativeFraudWithDeclinedAuthorization() {
+        paymentProperties.setPipeline(PaymentProperties.Pipeline.SPECULATIVE);
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(true));
+        when(bankService.processPaymentReactive(validPaymentRequest))
+                .thenReturn(Mono.error(new BankDeclinedException("Transacción rechazada por el banco.")));
+
+        // El fraude prevalece sobre el rechazo y no hay nada que anular
+        assertThrows(FraudException.class, () -> paymentService.processPayment(validPaymentRequest));
+
+        verify(bankService, never()).voidPaymentReactive(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testAuthorizePaymentReactive_SpeculativeCancelVoidsLateAuthorization() {
+        paymentProperties.setPipeline(PaymentProperties.Pipeline.SPECULATIVE);
+        when(antiFraudService.isFraudulentReactive(validPaymentRequest)).thenReturn(Mono.just(false));
+
+        BankResponse bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+        Sinks.One<BankResponse> bank = Sinks.one();
+        when(bankService.processPaymentReactive(validPaymentRequest)).thenReturn(bank.asMono());
+        when(bankService.voidPaymentReactive("bank-tx-123")).thenReturn(Mono.empty());
+
+        // El cliente se desconecta antes de que el banco responda
+        paymentService.authorizePaymentReactive(validPaymentRequest).subscribe().dispose();
+        verify(bankService).processPaymentReactive(validPaymentRequest);
+        verify(bankService, never()).voidPaymentReactive(any());
+
+        bank.tryEmitValue(bankResponse);
+
+        verify(bankService).voidPaymentReactive("bank-tx-123");
+    }
+
+    private static ObservationRegistry observationRegistry(SimpleMeterRegistry meterRegistry) {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        return registry;
+    }
+}
@@ -0,0 +1,95 @@
+package com.payu;
+
+import com.payu.config.PreScreeningProperties;
+import com.payu.model.PaymentRequest;
+import com.payu.service.PreScreeningService;
+import com.payu.service.PreScreeningService.Decision;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreScreeningServiceTest {
+
+    private PreScreeningProperties properties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new PreScreeningProperties();
+        PreScreeningProperties.Threshold usd = new PreScreeningProperties.Threshold();
+        usd.setAcceptBelow(new BigDecimal("50"));
+        usd.setRejectAbove(new BigDecimal("10000"));
+        properties.getThresholds().put("USD", usd);
+        properties.setBlockedBins(Set.of("555555", "41111112"));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testAmountThresholdsPerCurrency() {
+        PreScreeningService preScreeningService = newService();
+
+        assertEquals(Decision.ACCEPT, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Decision.REVIEW, preScreeningService.screen(request("4012888888881881", "500.00", "USD")));
+        assertEquals(Decision.REJECT, preScreeningService.screen(request("4222222222222", "15000.00", "USD")));
+        // Moneda sin umbrales: siempre en remoto
+        assertEquals(Decision.REVIEW, preScreeningService.screen(request("5105105105105100", "20.00", "GBP")));
+    }
+
+    @Test
+    public void testBlockedBinsAreRejected() {
+        PreScreeningService preScreeningService = newService();
+
+        assertEquals(Decision.REJECT, preScreeningService.screen(request("5555555555554444", "20.00", "USD")));
+        assertEquals(Decision.REJECT, preScreeningService.screen(request("4111111200000000", "20.00", "USD")));
+        assertEquals(Decision.ACCEPT, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+    }
+
+    @Test
+    public void testVelocityPerCard() {
+        properties.getVelocity().setReviewAbove(2);
+        properties.getVelocity().setRejectAbove(4);
+        PreScreeningService preScreeningService = newService();
+
+        assertEquals(Decision.ACCEPT, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Decision.ACCEPT, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Decision.REVIEW, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Decision.REVIEW, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+        assertEquals(Decision.REJECT, preScreeningService.screen(request("4111111111111111", "20.00", "USD")));
+        // Otra tarjeta no se ve afectada
+        assertEquals(Decision.ACCEPT, preScreeningService.screen(request("4012888888881881", "20.00", "USD")));
+    }
+
+    @Test
+    public void testDecisionsAreExposedAsMetrics() {
+        PreScreeningService preScreeningService = newService();
+        preScreeningService.screen(request("4111111111111111", "20.00", "USD"));
+        preScreeningService.screen(request("4012888888881881", "500.00", "USD"));
+
+        assertEquals(1.0, meterRegistry.get("payu.antifraud.prescreening.decisions").tag("decision", "ACCEPT").counter().count());
+        assertEquals(1.0, meterRegistry.get("payu.antifraud.prescreening.decisions").tag("decision", "REVIEW").counter().count());
+        assertEquals(2, meterRegistry.get("payu.antifraud.prescreening.evaluation").timer().count());
+        assertEquals(0.5, preScreeningService.stats().remoteAvoidanceRate());
+    }
+
+    private PreScreeningService newService() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new PreScreeningService(properties, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private PaymentRequest request(String cardNumber, String amount, String currency) {
+        PaymentRequest request = new PaymentRequest();
+        request.setCardNumber(cardNumber);
+        request.setAmount(new BigDecimal(amount));
+        request.setCurrency(currency);
+        return request;
+    }
+}
@@ -0,0 +1,93 @@
+package com.payu;
+
+import com.payu.model.BankResponse;
+import com.payu.model.RefundRequest;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+import com.payu.repository.TransactionRepository;
+import com.payu.service.BankService;
+import com.payu.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+public class RefundConcurrencyTest {
+
+    private static final int REFUNDS = 40;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @MockBean
+    private BankService bankService;
+
+    @Test
+    void concurrentPartialRefundsNeverExceedThePurchase() throws Exception {
+        BankResponse refunded = new BankResponse();
+        refunded.setStatus("REFUNDED");
+        refunded.setTransactionId("bank-tx-refund");
+        when(bankService.processRefund(any(RefundRequest.class))).thenReturn(refunded);
+
+        Transaction purchase = new Transaction();
+        purchase.setCardNumber("4111111111111111");
+        purchase.setAmountMinor(10000);
+        purchase.setCurrency("USD");
+        purchase.setType(TransactionType.PURCHASE);
+        purchase.setTimestamp(LocalDateTime.now());
+        Long purchaseId = transactionRepository.save(purchase).getId();
+
+        // 40 reembolsos de 10.00 contra una compra de 100.00: solo 10 pueden completarse
+        ExecutorService executor = Executors.newFixedThreadPool(REFUNDS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < REFUNDS; i++) {
+            results.add(executor.submit(() -> {
+                RefundRequest request = new RefundRequest();
+                request.setOriginalTransactionId(purchaseId);
+                request.setAmount(new BigDecimal("10.00"));
+                start.await();
+                try {
+                    paymentService.processRefund(request);
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    assertEquals("El monto del reembolso excede el monto disponible.", e.getMessage());
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(10, succeeded);
+        assertEquals(10000, transactionRepository.findById(purchaseId).orElseThrow().getRefundedAmountMinor());
+        BigDecimal refundRows = transactionRepository.findAll().stream()
+                .filter(transaction -> purchaseId.equals(transaction.getOriginalTransactionId()))
+                .map(Transaction::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal("-100.00").compareTo(refundRows));
+    }
+}
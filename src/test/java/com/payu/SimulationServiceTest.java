@@ -0,0 +1,132 @@
+package com.payu;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payu.config.SimulationProperties;
+import com.payu.model.BankResponse;
+import com.payu.model.SimulationProfile;
+import com.payu.service.SimulationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationServiceTest {
+
+    private SimulationService simulationService;
+
+    private BankResponse bankResponse;
+
+    @BeforeEach
+    public void setUp() {
+        simulationService = new SimulationService(new SimulationProperties(), new ObjectMapper().registerModule(new JavaTimeModule()));
+
+        bankResponse = new BankResponse();
+        bankResponse.setStatus("APPROVED");
+        bankResponse.setTransactionId("bank-tx-123");
+    }
+
+    @Test
+    public void testRespond_WithoutFaults() {
+        StepVerifier.create(simulationService.respond("bank", () -> bankResponse).flatMapMany(ResponseEntity::getBody))
+                .expectNext("{\"status\":\"APPROVED\",\"transactionId\":\"bank-tx-123\",\"message\":null}")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testRespondCbor_WithoutFaults() throws Exception {
+        byte[] body = simulationService.respondCbor("bank", () -> bankResponse).block().getBody();
+
+        assertEquals(bankResponse, Jackson2ObjectMapperBuilder.cbor().build().readValue(body, BankResponse.class));
+    }
+
+    @Test
+    public void testRespondCbor_ErrorRate() {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setErrorRate(1.0);
+        profile.setErrorStatus(503);
+        simulationService.update("antifraud", profile);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, simulationService.respondCbor("antifraud", () -> bankResponse).block().getStatusCode());
+    }
+
+    @Test
+    public void testRespond_ErrorRate() {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setErrorRate(1.0);
+        profile.setErrorStatus(500);
+        simulationService.update("bank", profile);
+
+        StepVerifier.create(simulationService.respond("bank", () -> bankResponse))
+                .assertNext(response -> assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testRespond_ThroughputCap() {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setMaxRequestsPerSecond(2);
+        simulationService.update("bank", profile);
+
+        assertEquals(HttpStatus.OK, simulationService.respond("bank", () -> bankResponse).block().getStatusCode());
+        assertEquals(HttpStatus.OK, simulationService.respond("bank", () -> bankResponse).block().getStatusCode());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, simulationService.respond("bank", () -> bankResponse).block().getStatusCode());
+    }
+
+    @Test
+    public void testRespond_SlowDrip() {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setDripInterval(Duration.ofMillis(1));
+        profile.setDripChunkBytes(10);
+        simulationService.update("bank", profile);
+
+        Flux<String> body = simulationService.respond("bank", () -> bankResponse).block().getBody();
+
+        assertEquals(7, body.collectList().block().size());
+    }
+
+    @Test
+    public void testRespond_Timeout() {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setTimeoutRate(1.0);
+        simulationService.update("antifraud", profile);
+
+        StepVerifier.create(simulationService.respond("antifraud", () -> bankResponse))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testRespond_ParetoLatencyIsCapped() {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setDistribution(SimulationProfile.LatencyDistribution.PARETO);
+        profile.setLatency(Duration.ofMillis(5));
+        profile.setParetoShape(0.5);
+        profile.setMaxLatency(Duration.ofMillis(20));
+        simulationService.update("bank", profile);
+
+        StepVerifier.withVirtualTime(() -> simulationService.respond("bank", () -> bankResponse))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(4))
+                .thenAwait(Duration.ofMillis(16))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testUpdate_UnknownDownstream() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> simulationService.update("unknown", new SimulationProfile()));
+
+        assertEquals("Servicio simulado desconocido: unknown", exception.getMessage());
+    }
+}
@@ -0,0 +1,182 @@
+package com.payu;
+
+import com.payu.config.PersistenceProperties;
+import com.payu.model.Money;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+import com.payu.service.TransactionJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    private PersistenceProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new PersistenceProperties();
+        properties.setMode(PersistenceProperties.Mode.JOURNAL);
+        properties.getJournal().setDirectory(directory.toString());
+    }
+
+    @Test
+    public void testReplayRestoresCommittedTransactions() throws Exception {
+        List<Transaction> committed = new CopyOnWriteArrayList<>();
+        TransactionJournal journal = open(new ArrayList<>());
+        journal.start((transactions, position) -> committed.addAll(transactions));
+        Transaction purchase = journal.append(transaction(TransactionType.PURCHASE, "1234.56", null, "bank-1")).join();
+        Transaction refund = journal.append(transaction(TransactionType.REFUND, "-200.5", purchase.getId(), null)).join();
+        journal.close();
+
+        List<Transaction> replayed = new ArrayList<>();
+        TransactionJournal reopened = open(replayed);
+
+        assertEquals(2, committed.size());
+        assertEquals(2, replayed.size());
+        assertSame(purchase, committed.get(0));
+        assertEquivalent(purchase, replayed.get(0));
+        assertEquivalent(refund, replayed.get(1));
+        reopened.start((transactions, position) -> {
+        });
+        reopened.close();
+    }
+
+    @Test
+    public void testRollsSegmentsAndReplaysInOrder() throws Exception {
+        properties.getJournal().setSegmentSize(DataSize.ofBytes(1024));
+        // Un lote nunca se reparte entre segmentos: lotes pequeños para que roten sin depender del ritmo
+        properties.getJournal().setBatchSize(8);
+        TransactionJournal journal = open(new ArrayList<>());
+        journal.start((transactions, position) -> {
+        });
+        List<CompletableFuture<Transaction>> appended = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            appended.add(journal.append(transaction(TransactionType.PURCHASE, i + ".00", null, "bank-" + i)));
+        }
+        CompletableFuture.allOf(appended.toArray(CompletableFuture[]::new)).join();
+        journal.close();
+
+        List<Transaction> replayed = new ArrayList<>();
+        open(replayed);
+
+        assertTrue(segments().size() > 1);
+        assertEquals(200, replayed.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(appended.get(i).join().getId(), replayed.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testTornTailIsTruncatedOnReplay() throws Exception {
+        TransactionJournal journal = open(new ArrayList<>());
+        journal.start((transactions, position) -> {
+        });
+        journal.append(transaction(TransactionType.PURCHASE, "10.00", null, "bank-1")).join();
+        journal.close();
+        // Registro cortado por una caída a mitad de escritura
+        Path segment = segments().get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 60, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        TransactionJournal reopened = open(new ArrayList<>());
+        reopened.start((transactions, position) -> {
+        });
+        reopened.append(transaction(TransactionType.PURCHASE, "20.00", null, "bank-2")).join();
+        reopened.close();
+
+        List<Transaction> replayed = new ArrayList<>();
+        open(replayed);
+        assertEquals(List.of("bank-1", "bank-2"), replayed.stream().map(Transaction::getBankTransactionId).toList());
+    }
+
+    @Test
+    public void testReplayResumesFromACommittedPosition() throws Exception {
+        List<TransactionJournal.Position> positions = new CopyOnWriteArrayList<>();
+        TransactionJournal journal = open(new ArrayList<>());
+        journal.start((transactions, position) -> positions.add(position));
+        journal.append(transaction(TransactionType.PURCHASE, "10.00", null, "bank-1")).join();
+        journal.append(transaction(TransactionType.PURCHASE, "20.00", null, "bank-2")).join();
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        new TransactionJournal(properties, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class))
+                .replay(positions.get(0), (transaction, position) -> replayed.add(transaction.getBankTransactionId()));
+
+        assertEquals(2, positions.size());
+        assertEquals(List.of("bank-2"), replayed);
+    }
+
+    @Test
+    public void testRejectsCurrenciesThatDoNotFitTheRecord() throws Exception {
+        TransactionJournal journal = open(new ArrayList<>());
+        journal.start((transactions, position) -> {
+        });
+        Transaction invalid = transaction(TransactionType.PURCHASE, "10.00", null, "bank-1");
+        invalid.setCurrency("USDX");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> journal.append(invalid));
+        assertEquals("La moneda USDX no es un código ISO 4217.", exception.getMessage());
+        journal.append(transaction(TransactionType.PURCHASE, "20.00", null, "bank-2")).join();
+        journal.close();
+
+        List<Transaction> replayed = new ArrayList<>();
+        open(replayed);
+        assertEquals(List.of("bank-2"), replayed.stream().map(Transaction::getBankTransactionId).toList());
+    }
+
+    private TransactionJournal open(List<Transaction> replayed) {
+        TransactionJournal journal = new TransactionJournal(properties,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        journal.replay(replayed::add);
+        return journal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static Transaction transaction(TransactionType type, String amount, Long originalTransactionId, String bankTransactionId) {
+        Transaction transaction = new Transaction();
+        transaction.setCardNumber("4111111111111111");
+        transaction.setAmountMinor(Money.toMinor(new BigDecimal(amount), "USD"));
+        transaction.setCurrency("USD");
+        transaction.setType(type);
+        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setOriginalTransactionId(originalTransactionId);
+        transaction.setBankTransactionId(bankTransactionId);
+        return transaction;
+    }
+
+    private static void assertEquivalent(Transaction expected, Transaction actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getCardNumber(), actual.getCardNumber());
+        assertEquals(expected.getAmountMinor(), actual.getAmountMinor());
+        assertEquals(expected.getCurrency(), actual.getCurrency());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getOriginalTransactionId(), actual.getOriginalTransactionId());
+        assertEquals(expected.getBankTransactionId(), actual.getBankTransactionId());
+    }
+}
@@ -0,0 +1,124 @@
+package com.payu;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payu.model.Transaction;
+import com.payu.model.TransactionPage;
+import com.payu.model.TransactionQuery;
+import com.payu.model.TransactionType;
+import com.payu.repository.TransactionRepository;
+import com.payu.service.TransactionQueryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class TransactionQueryServiceTest {
+
+    @Autowired
+    private TransactionQueryService transactionQueryService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Número de tarjeta propio de cada prueba: la base H2 se comparte con las demás pruebas
+    private String cardNumber;
+
+    private Long purchaseId;
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 6, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        cardNumber = "4" + Long.toString(Math.abs(UUID.randomUUID().getMostSignificantBits()) % 1_000_000_000_000_000L);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            transactions.add(transaction(TransactionType.PURCHASE, start.plusMinutes(i), null));
+        }
+        purchaseId = transactionRepository.saveAll(transactions).get(0).getId();
+        transactionRepository.saveAll(List.of(
+                transaction(TransactionType.REFUND, start.plusHours(1), purchaseId),
+                transaction(TransactionType.REFUND, start.plusHours(2), purchaseId)));
+    }
+
+    @Test
+    void pagesFollowTheCursorUntilTheLastPage() {
+        TransactionQuery query = new TransactionQuery();
+        query.setCardNumber(cardNumber);
+        query.setType(TransactionType.PURCHASE);
+
+        List<Long> ids = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        Long cursor = null;
+        do {
+            TransactionPage page = transactionQueryService.page(query, cursor, 10);
+            page.getItems().forEach(transaction -> ids.add(transaction.getId()));
+            sizes.add(page.getItems().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(10, 10, 5), sizes);
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+    }
+
+    @Test
+    void filtersByOriginalTransactionAndTimeRange() {
+        TransactionQuery refunds = new TransactionQuery();
+        refunds.setOriginalTransactionId(purchaseId);
+        assertEquals(2, transactionQueryService.page(refunds, null, 10).getItems().size());
+
+        TransactionQuery range = new TransactionQuery();
+        range.setCardNumber(cardNumber);
+        range.setFrom(start.plusMinutes(5));
+        range.setTo(start.plusMinutes(15));
+        assertEquals(10, transactionQueryService.page(range, null, 100).getItems().size());
+
+        assertThrows(IllegalArgumentException.class, () -> transactionQueryService.page(range, null, 0));
+    }
+
+    @Test
+    void responsesOnlyShowTheLastFourDigits() throws Exception {
+        TransactionQuery query = new TransactionQuery();
+        query.setCardNumber(cardNumber);
+
+        String json = objectMapper.writeValueAsString(transactionQueryService.page(query, null, 1));
+
+        assertFalse(json.contains(cardNumber), json);
+        assertTrue(json.contains("\"cardNumber\":\"" + "*".repeat(cardNumber.length() - 4)
+                + cardNumber.substring(cardNumber.length() - 4) + "\""), json);
+    }
+
+    @Test
+    void exportStreamsEveryMatchingTransactionInIdOrder() {
+        TransactionQuery query = new TransactionQuery();
+        query.setCardNumber(cardNumber);
+
+        List<Long> exported = new ArrayList<>();
+        transactionQueryService.export(query, transaction -> exported.add(transaction.getId()));
+
+        assertEquals(27, exported.size());
+        assertEquals(exported.stream().sorted().toList(), exported);
+        assertEquals(transactionQueryService.page(query, null, 100).getItems().stream().map(Transaction::getId).toList(), exported);
+    }
+
+    private Transaction transaction(TransactionType type, LocalDateTime timestamp, Long originalTransactionId) {
+        Transaction transaction = new Transaction();
+        transaction.setCardNumber(cardNumber);
+        transaction.setAmountMinor(1000);
+        transaction.setCurrency("USD");
+        transaction.setType(type);
+        transaction.setTimestamp(timestamp);
+        transaction.setOriginalTransactionId(originalTransactionId);
+        return transaction;
+    }
+}
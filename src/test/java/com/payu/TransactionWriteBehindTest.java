@@ -0,0 +1,132 @@
+package com.payu;
+
+import com.payu.model.Transaction;
+import com.payu.model.TransactionType;
+import com.payu.repository.TransactionRepository;
+import com.payu.service.TransactionQueryService;
+import com.payu.service.TransactionWriteBehind;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "payu.persistence.mode=WRITE_BEHIND",
+        "payu.persistence.write-behind.batch-size=10",
+        "payu.persistence.write-behind.flush-interval=20ms",
+        "payu.persistence.write-behind.retry-backoff=1ms",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class TransactionWriteBehindTest {
+
+    @Autowired
+    private TransactionWriteBehind transactionWriteBehind;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void enqueuedTransactionsAreFlushedInBatches() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            futures.add(transactionWriteBehind.enqueue(purchase()));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        // Un INSERT preparado por lote JDBC: con batch-size=10 son al menos 3 lotes, y se encolan
+        // mucho más rápido que flush-interval, así que no más de 5
+        assertEquals(25, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() >= 3 && statistics.getPrepareStatementCount() <= 5,
+                "Sentencias preparadas: " + statistics.getPrepareStatementCount());
+
+        long previousId = 0;
+        for (CompletableFuture<Transaction> future : futures) {
+            Transaction transaction = future.join();
+            // IDs asignados al encolar y crecientes en el orden de llegada
+            assertTrue(transaction.getId() > previousId);
+            previousId = transaction.getId();
+            assertTrue(transactionRepository.existsById(transaction.getId()));
+        }
+    }
+
+    @Test
+    void invalidRowDoesNotFailTheRestOfItsBatch() {
+        Transaction invalid = purchase();
+        invalid.setCurrency(null);
+        List<CompletableFuture<Transaction>> valid = new ArrayList<>();
+        valid.add(transactionWriteBehind.enqueue(purchase()));
+        CompletableFuture<Transaction> rejected = transactionWriteBehind.enqueue(invalid);
+        valid.add(transactionWriteBehind.enqueue(purchase()));
+
+        CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(PersistenceException.class, exception.getCause());
+        assertFalse(transactionRepository.existsById(invalid.getId()));
+        for (CompletableFuture<Transaction> future : valid) {
+            assertTrue(transactionRepository.existsById(future.join().getId()));
+        }
+    }
+
+    private Transaction purchase() {
+        Transaction transaction = new Transaction();
+        transaction.setCardNumber("4111111111111111");
+        transaction.setAmountMinor(10000);
+        transaction.setCurrency("USD");
+        transaction.setType(TransactionType.PURCHASE);
+        transaction.setTimestamp(LocalDateTime.now());
+        return transaction;
+    }
+
+    // Con ack=ENQUEUED la respuesta sale antes del INSERT con el ID asignado al encolar: la fila
+    // debe guardarse con ese mismo ID
+    @Nested
+    @TestPropertySource(properties = "payu.persistence.write-behind.ack=ENQUEUED")
+    class Enqueued {
+
+        @Autowired
+        private TransactionWriteBehind transactionWriteBehind;
+
+        @Autowired
+        private TransactionRepository transactionRepository;
+
+        @Autowired
+        private TransactionQueryService transactionQueryService;
+
+        @Test
+        void returnedIdIsTheStoredId() throws InterruptedException {
+            long returnedId = transactionWriteBehind.enqueue(purchase()).join().getId();
+
+            for (int i = 0; i < 100 && !transactionRepository.existsById(returnedId); i++) {
+                Thread.sleep(20);
+            }
+            assertTrue(transactionRepository.existsById(returnedId));
+        }
+
+        @Test
+        void lookupsWaitForAnEnqueuedTransaction() {
+            long returnedId = transactionWriteBehind.enqueue(purchase()).join().getId();
+
+            // Sin esperar a la inserción: la consulta espera a que la fila llegue
+            assertEquals(returnedId, transactionQueryService.findSaved(returnedId).orElseThrow().getId());
+            assertFalse(transactionWriteBehind.awaitFlushed(returnedId));
+        }
+    }
+}